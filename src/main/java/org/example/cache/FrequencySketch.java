@@ -0,0 +1,61 @@
+package org.example.cache;
+
+// Count-min sketch of 4 bit counters, 16 to a long, estimating how often each id was asked for lately. Counters are
+// halved every sampleSize increments so ids that were hot long ago stop outweighing the ones hot now.
+final class FrequencySketch {
+
+  private static final long[] SEEDS = {0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+  private static final long RESET_MASK = 0x7777777777777777L;
+  private static final int MAX_COUNT = 15;
+
+  private final long[] table;
+  private final int sampleSize;
+  private int increments;
+
+  FrequencySketch(int expectedEntries) {
+    int counters = Integer.highestOneBit(Math.max(16, expectedEntries - 1)) << 1;
+    this.table = new long[counters >>> 4];
+    this.sampleSize = counters * 10;
+  }
+
+  void increment(long id) {
+    boolean incremented = false;
+    for (long seed : SEEDS) {
+      long hash = hash(id, seed);
+      int index = index(hash);
+      int shift = shift(hash);
+      if (((table[index] >>> shift) & MAX_COUNT) < MAX_COUNT) {
+        table[index] += 1L << shift;
+        incremented = true;
+      }
+    }
+    if (incremented && ++increments == sampleSize) {
+      for (int i = 0; i < table.length; i++) {
+        table[i] = (table[i] >>> 1) & RESET_MASK;
+      }
+      increments /= 2;
+    }
+  }
+
+  int frequency(long id) {
+    int frequency = MAX_COUNT;
+    for (long seed : SEEDS) {
+      long hash = hash(id, seed);
+      frequency = Math.min(frequency, (int) ((table[index(hash)] >>> shift(hash)) & MAX_COUNT));
+    }
+    return frequency;
+  }
+
+  private int index(long hash) {
+    return (int) (hash >>> 32) & (table.length - 1);
+  }
+
+  private static int shift(long hash) {
+    return (int) (hash & 15) << 2;
+  }
+
+  private static long hash(long id, long seed) {
+    long hash = (id + seed) * 0x9E3779B97F4A7C15L;
+    return hash ^ (hash >>> 29);
+  }
+}
@@ -0,0 +1,307 @@
+package org.example.cache;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.example.model.Transaction;
+import org.example.persistance.MutationListener;
+
+// Serialized GET bodies of the most read transactions, bounded by their bytes. Every segment evicts its least
+// recently read entry, but only to admit an id its FrequencySketch saw more often than that one (TinyLFU), so a scan
+// of cold ids cannot flush the hot roots out.
+// An add or a rollback drops the entries of the changed transaction and its ancestors. Descendants of a rollback are
+// not walked: an entry also keeps whether its transaction was active, and is dropped when read if that changed.
+public class ResponseCache implements MutationListener {
+
+  public enum Kind {
+    TREE, SUM
+  }
+
+  private static final int SEGMENTS = 16;
+  private static final int STRIPES = 4096;
+  private static final int ENTRY_OVERHEAD_BYTES = 64;
+  private static final int EXPECTED_ENTRY_BYTES = 1024;
+
+  private final int maxEntryBytes;
+  private final Segment[] segments = new Segment[SEGMENTS];
+  // the last sequence that changed an id of the stripe, bodies read before it may miss that change
+  private final AtomicLongArray changedAt = new AtomicLongArray(STRIPES);
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+  private final LongAdder rejections = new LongAdder();
+
+  public ResponseCache(long maxBytes, int maxEntryBytes) {
+    long segmentBytes = Math.max(1, maxBytes / SEGMENTS);
+    this.maxEntryBytes = (int) Math.min(maxEntryBytes, segmentBytes - ENTRY_OVERHEAD_BYTES);
+    for (int i = 0; i < SEGMENTS; i++) {
+      segments[i] = new Segment(segmentBytes);
+    }
+  }
+
+  // the cached body if it still is what a read of the transaction would answer
+  public byte[] get(Transaction transaction, Kind kind) {
+    byte[] body = segmentFor(transaction.getId()).get(transaction, kind);
+    if (body == null) {
+      misses.increment();
+    } else {
+      hits.increment();
+    }
+    return body;
+  }
+
+  // bodies read at a sequence some change of the transaction came after are not kept
+  public void put(Transaction transaction, long readSequence, Kind kind, byte[] body) {
+    if (body.length <= maxEntryBytes) {
+      segmentFor(transaction.getId()).put(transaction, readSequence, kind, body);
+    }
+  }
+
+  // writes through to the output and keeps a copy of what was written, up to maxEntryBytes, to put once complete
+  public Recording record(OutputStream output) {
+    return new Recording(output);
+  }
+
+  @Override
+  public void onAdd(Transaction transaction) {
+    invalidate(transaction, transaction.getCreatedSequence());
+  }
+
+  @Override
+  public void onRollback(Transaction transaction) {
+    invalidate(transaction, transaction.getRollbackSequence());
+  }
+
+  public long hits() {
+    return hits.sum();
+  }
+
+  public long misses() {
+    return misses.sum();
+  }
+
+  public long evictions() {
+    return evictions.sum();
+  }
+
+  public long rejections() {
+    return rejections.sum();
+  }
+
+  public long bytes() {
+    long bytes = 0;
+    for (Segment segment : segments) {
+      bytes += segment.bytes;
+    }
+    return bytes;
+  }
+
+  public long size() {
+    long size = 0;
+    for (Segment segment : segments) {
+      size += segment.size;
+    }
+    return size;
+  }
+
+  private void invalidate(Transaction changed, long sequence) {
+    for (Transaction transaction = changed; transaction != null; transaction = transaction.getParent()) {
+      long id = transaction.getId();
+      // raised before the entry is dropped, so a body read before the change is refused by put or dropped here
+      changedAt.accumulateAndGet(stripe(id), sequence, Math::max);
+      segmentFor(id).remove(id);
+    }
+  }
+
+  private Segment segmentFor(long id) {
+    return segments[(int) (id * 0x9E3779B97F4A7C15L >>> 60)];
+  }
+
+  private static int stripe(long id) {
+    return (int) (id ^ (id >>> 32)) & (STRIPES - 1);
+  }
+
+  private static final class Entry {
+
+    private final Transaction transaction;
+    private final boolean active;
+    private final byte[][] bodies = new byte[Kind.values().length][];
+    private int bytes = ENTRY_OVERHEAD_BYTES;
+
+    private Entry(Transaction transaction, boolean active) {
+      this.transaction = transaction;
+      this.active = active;
+    }
+
+    private boolean isCurrent(Transaction read, boolean readActive) {
+      return transaction == read && active == readActive;
+    }
+
+    // the change of the entry size
+    private int set(Kind kind, byte[] body) {
+      byte[] previous = bodies[kind.ordinal()];
+      bodies[kind.ordinal()] = body;
+      int delta = body.length - (previous == null ? 0 : previous.length);
+      bytes += delta;
+      return delta;
+    }
+  }
+
+  // locks rather than monitors, so virtual threads waiting on a segment release their carrier
+  private final class Segment {
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final long maxBytes;
+    private final Map<Long, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final FrequencySketch sketch;
+    private volatile long bytes;
+    private volatile int size;
+
+    private Segment(long maxBytes) {
+      this.maxBytes = maxBytes;
+      this.sketch = new FrequencySketch((int) Math.min(1 << 20, Math.max(64, maxBytes / EXPECTED_ENTRY_BYTES)));
+    }
+
+    private byte[] get(Transaction transaction, Kind kind) {
+      long id = transaction.getId();
+      // the ancestors are walked outside of the lock
+      boolean active = transaction.isActive();
+      lock.lock();
+      try {
+        sketch.increment(id);
+        Entry entry = entries.get(id);
+        if (entry == null) {
+          return null;
+        }
+        if (!entry.isCurrent(transaction, active)) {
+          drop(id);
+          return null;
+        }
+        return entry.bodies[kind.ordinal()];
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    private void put(Transaction transaction, long readSequence, Kind kind, byte[] body) {
+      long id = transaction.getId();
+      boolean active = transaction.isActiveAt(readSequence);
+      lock.lock();
+      try {
+        if (changedAt.get(stripe(id)) > readSequence) {
+          return;
+        }
+        Entry entry = entries.get(id);
+        if (entry == null || !entry.isCurrent(transaction, active)) {
+          if (entry != null) {
+            drop(id);
+          }
+          entry = new Entry(transaction, active);
+          if (!makeRoom(id, entry.bytes + body.length)) {
+            rejections.increment();
+            return;
+          }
+          entries.put(id, entry);
+          bytes += entry.bytes;
+          size = entries.size();
+        }
+        bytes += entry.set(kind, body);
+        // a second body of an entry already kept is let in at the expense of the least recent ones
+        Iterator<Map.Entry<Long, Entry>> eldest = entries.entrySet().iterator();
+        while (bytes > maxBytes && eldest.hasNext()) {
+          Map.Entry<Long, Entry> victim = eldest.next();
+          if (victim.getKey() != id) {
+            eldest.remove();
+            evicted(victim.getValue());
+          }
+        }
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    // evicts the least recent entries while the candidate was asked for more often than each of them
+    private boolean makeRoom(long candidate, int candidateBytes) {
+      Iterator<Map.Entry<Long, Entry>> eldest = entries.entrySet().iterator();
+      while (bytes + candidateBytes > maxBytes) {
+        if (!eldest.hasNext()) {
+          return false;
+        }
+        Map.Entry<Long, Entry> victim = eldest.next();
+        if (sketch.frequency(candidate) <= sketch.frequency(victim.getKey())) {
+          return false;
+        }
+        eldest.remove();
+        evicted(victim.getValue());
+      }
+      return true;
+    }
+
+    private void remove(long id) {
+      lock.lock();
+      try {
+        drop(id);
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    private void drop(long id) {
+      Entry entry = entries.remove(id);
+      if (entry != null) {
+        bytes -= entry.bytes;
+        size = entries.size();
+      }
+    }
+
+    private void evicted(Entry entry) {
+      bytes -= entry.bytes;
+      size = entries.size();
+      evictions.increment();
+    }
+  }
+
+  public final class Recording extends FilterOutputStream {
+
+    private final ByteArrayOutputStream copy = new ByteArrayOutputStream();
+    private boolean overflowed;
+
+    private Recording(OutputStream output) {
+      super(output);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      out.write(b);
+      if (!overflowed) {
+        copy.write(b);
+        overflowed = copy.size() > maxEntryBytes;
+      }
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+      out.write(bytes, offset, length);
+      if (!overflowed) {
+        overflowed = copy.size() + length > maxEntryBytes;
+        if (!overflowed) {
+          copy.write(bytes, offset, length);
+        }
+      }
+    }
+
+    public void put(Transaction transaction, long readSequence, Kind kind) {
+      if (!overflowed) {
+        ResponseCache.this.put(transaction, readSequence, kind, copy.toByteArray());
+      }
+    }
+  }
+}
@@ -0,0 +1,28 @@
+package org.example.config;
+
+import static org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type.SERVLET;
+
+import java.util.List;
+
+import org.example.controller.TransactionBinaryMessageConverter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+@ConditionalOnWebApplication(type = SERVLET)
+public class BinaryFormatConfig {
+
+  // extended rather than configured, so the converter lands after jackson and only answers when asked for
+  @Bean
+  public WebMvcConfigurer binaryTransactionBodies() {
+    return new WebMvcConfigurer() {
+      @Override
+      public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        converters.add(new TransactionBinaryMessageConverter());
+      }
+    };
+  }
+}
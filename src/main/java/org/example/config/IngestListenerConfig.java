@@ -0,0 +1,26 @@
+package org.example.config;
+
+import java.io.IOException;
+
+import jakarta.validation.Validator;
+import org.example.listener.IngestListener;
+import org.example.persistance.TransactionsHolder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConditionalOnProperty(value = "transactions.listener.enabled", havingValue = "true")
+public class IngestListenerConfig {
+
+  // a follower answers the writes it gets here the same way its rest api does
+  @Bean(destroyMethod = "close")
+  public IngestListener ingestListener(TransactionsHolder transactionsHolder, Validator validator,
+                                       @Value("${transactions.listener.port}") int port,
+                                       @Value("${transactions.listener.threads}") int threads,
+                                       @Value("${transactions.replication.role}") String role) throws IOException {
+    int loops = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+    return new IngestListener(transactionsHolder, validator, port, loops, "follower".equals(role));
+  }
+}
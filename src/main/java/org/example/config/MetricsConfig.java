@@ -0,0 +1,26 @@
+package org.example.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.example.cache.ResponseCache;
+import org.example.persistance.TransactionsHolder;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConditionalOnProperty(value = "transactions.metrics.enabled", havingValue = "true")
+public class MetricsConfig {
+
+  @Bean
+  public MicrometerHolderMetrics holderMetrics(MeterRegistry registry, TransactionsHolder transactionsHolder) {
+    MicrometerHolderMetrics holderMetrics = new MicrometerHolderMetrics(registry, transactionsHolder);
+    transactionsHolder.useMetrics(holderMetrics);
+    return holderMetrics;
+  }
+
+  @Bean
+  @ConditionalOnProperty(value = "transactions.response-cache.enabled", havingValue = "true")
+  public ResponseCacheMetrics responseCacheMetrics(ResponseCache responseCache) {
+    return new ResponseCacheMetrics(responseCache);
+  }
+}
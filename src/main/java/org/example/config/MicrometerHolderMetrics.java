@@ -0,0 +1,82 @@
+package org.example.config;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.example.persistance.HolderMetrics;
+import org.example.persistance.TransactionsHolder;
+
+public class MicrometerHolderMetrics implements HolderMetrics {
+
+  private final MeterRegistry registry;
+  private final Timer[] operations = new Timer[Operation.values().length];
+  private final DistributionSummary[] depths = new DistributionSummary[Operation.values().length];
+  private final DistributionSummary[] fanOuts = new DistributionSummary[Operation.values().length];
+  private final Timer lockWait;
+  private final Timer lockHold;
+  private final Map<Class<?>, Counter> failures = new ConcurrentHashMap<>();
+
+  public MicrometerHolderMetrics(MeterRegistry registry, TransactionsHolder transactionsHolder) {
+    this.registry = registry;
+    for (Operation operation : Operation.values()) {
+      String name = operation.name().toLowerCase();
+      operations[operation.ordinal()] = Timer.builder("transactions.holder.operation")
+          .tag("operation", name)
+          .publishPercentileHistogram()
+          .register(registry);
+      depths[operation.ordinal()] = DistributionSummary.builder("transactions.tree.depth")
+          .tag("operation", name)
+          .publishPercentileHistogram()
+          .register(registry);
+      fanOuts[operation.ordinal()] = DistributionSummary.builder("transactions.tree.fan_out")
+          .tag("operation", name)
+          .publishPercentileHistogram()
+          .register(registry);
+    }
+    lockWait = Timer.builder("transactions.lock.wait").publishPercentileHistogram().register(registry);
+    lockHold = Timer.builder("transactions.lock.hold").publishPercentileHistogram().register(registry);
+    Gauge.builder("transactions.stored", transactionsHolder, TransactionsHolder::size).register(registry);
+    Gauge.builder("transactions.types", transactionsHolder, TransactionsHolder::typeCount).register(registry);
+    Gauge.builder("transactions.type_index.ids", transactionsHolder, TransactionsHolder::indexedIds).register(registry);
+  }
+
+  @Override
+  public boolean isEnabled() {
+    return true;
+  }
+
+  @Override
+  public long start() {
+    return System.nanoTime();
+  }
+
+  @Override
+  public void recordOperation(Operation operation, long start) {
+    operations[operation.ordinal()].record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+  }
+
+  @Override
+  public void recordLock(long requested, long acquired) {
+    lockWait.record(acquired - requested, TimeUnit.NANOSECONDS);
+    lockHold.record(System.nanoTime() - acquired, TimeUnit.NANOSECONDS);
+  }
+
+  @Override
+  public void recordTreeShape(Operation operation, int depth, int fanOut) {
+    depths[operation.ordinal()].record(depth);
+    fanOuts[operation.ordinal()].record(fanOut);
+  }
+
+  @Override
+  public void recordFailure(RuntimeException failure) {
+    failures.computeIfAbsent(failure.getClass(), type -> Counter.builder("transactions.failures")
+        .tag("exception", type.getSimpleName())
+        .register(registry)).increment();
+  }
+}
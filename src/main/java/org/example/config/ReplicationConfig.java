@@ -0,0 +1,75 @@
+package org.example.config;
+
+import static org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type.SERVLET;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import org.example.persistance.TransactionsHolder;
+import org.example.replication.ReplicaRequestInterceptor;
+import org.example.replication.ReplicationFollower;
+import org.example.replication.ReplicationLeader;
+import org.example.replication.ReplicationOffsetFilter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+public class ReplicationConfig {
+
+  @Bean(destroyMethod = "close")
+  @ConditionalOnProperty(value = "transactions.replication.role", havingValue = "leader")
+  public ReplicationLeader replicationLeader(TransactionsHolder transactionsHolder,
+                                            @Value("${transactions.wal.enabled}") boolean walEnabled,
+                                            @Value("${transactions.wal.directory}") Path walDirectory,
+                                            @Value("${transactions.snapshot.enabled}") boolean snapshotEnabled,
+                                            @Value("${transactions.snapshot.directory}") Path snapshotDirectory,
+                                            @Value("${transactions.replication.port}") int port,
+                                            @Value("${transactions.replication.heartbeat-ms}") long heartbeatMillis)
+      throws IOException {
+    // the log id is kept with the history the holder recovers from, without one every start is a new log
+    Path stateDirectory = walEnabled ? walDirectory : snapshotEnabled ? snapshotDirectory : null;
+    return new ReplicationLeader(transactionsHolder, stateDirectory, port, heartbeatMillis);
+  }
+
+  @Bean
+  @ConditionalOnProperty(value = "transactions.replication.role", havingValue = "leader")
+  @ConditionalOnWebApplication(type = SERVLET)
+  public FilterRegistrationBean<ReplicationOffsetFilter> replicationOffsets(ReplicationLeader replicationLeader) {
+    FilterRegistrationBean<ReplicationOffsetFilter> registration =
+        new FilterRegistrationBean<>(new ReplicationOffsetFilter(replicationLeader));
+    registration.addUrlPatterns("/transactions/*");
+    return registration;
+  }
+
+  @Bean(destroyMethod = "close")
+  @ConditionalOnProperty(value = "transactions.replication.role", havingValue = "follower")
+  public ReplicationFollower replicationFollower(TransactionsHolder transactionsHolder,
+                                                @Value("${transactions.replication.leader}") String leader,
+                                                @Value("${transactions.replication.heartbeat-ms}") long reconnectMillis) {
+    int separator = leader.lastIndexOf(':');
+    return new ReplicationFollower(transactionsHolder, leader.substring(0, separator),
+                                   Integer.parseInt(leader.substring(separator + 1)), reconnectMillis);
+  }
+
+  @Bean
+  @ConditionalOnProperty(value = "transactions.replication.role", havingValue = "follower")
+  @ConditionalOnWebApplication(type = SERVLET)
+  public WebMvcConfigurer replicaRequests(ReplicationFollower replicationFollower,
+                                          @Value("${transactions.replication.consistency}") String consistency,
+                                          @Value("${transactions.replication.max-wait-ms}") long maxWaitMillis) {
+    ReplicaRequestInterceptor interceptor =
+        new ReplicaRequestInterceptor(replicationFollower, "read-your-writes".equals(consistency), maxWaitMillis);
+    return new WebMvcConfigurer() {
+      @Override
+      public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(interceptor).addPathPatterns("/transactions/**");
+      }
+    };
+  }
+}
@@ -0,0 +1,22 @@
+package org.example.config;
+
+import org.example.cache.ResponseCache;
+import org.example.persistance.TransactionsHolder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConditionalOnProperty(value = "transactions.response-cache.enabled", havingValue = "true")
+public class ResponseCacheConfig {
+
+  @Bean
+  public ResponseCache responseCache(TransactionsHolder transactionsHolder,
+                                     @Value("${transactions.response-cache.max-bytes}") long maxBytes,
+                                     @Value("${transactions.response-cache.max-entry-bytes}") int maxEntryBytes) {
+    ResponseCache responseCache = new ResponseCache(maxBytes, maxEntryBytes);
+    transactionsHolder.invalidateOnMutations(responseCache);
+    return responseCache;
+  }
+}
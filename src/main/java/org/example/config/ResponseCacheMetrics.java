@@ -0,0 +1,40 @@
+package org.example.config;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.example.cache.ResponseCache;
+
+public class ResponseCacheMetrics implements MeterBinder {
+
+  private final ResponseCache responseCache;
+
+  public ResponseCacheMetrics(ResponseCache responseCache) {
+    this.responseCache = responseCache;
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    FunctionCounter.builder("transactions.response_cache.requests", responseCache, ResponseCache::hits)
+        .tag("result", "hit")
+        .register(registry);
+    FunctionCounter.builder("transactions.response_cache.requests", responseCache, ResponseCache::misses)
+        .tag("result", "miss")
+        .register(registry);
+    FunctionCounter.builder("transactions.response_cache.evictions", responseCache, ResponseCache::evictions)
+        .register(registry);
+    FunctionCounter.builder("transactions.response_cache.rejections", responseCache, ResponseCache::rejections)
+        .register(registry);
+    Gauge.builder("transactions.response_cache.hit_ratio", responseCache, ResponseCacheMetrics::hitRatio)
+        .register(registry);
+    Gauge.builder("transactions.response_cache.bytes", responseCache, ResponseCache::bytes).register(registry);
+    Gauge.builder("transactions.response_cache.entries", responseCache, ResponseCache::size).register(registry);
+  }
+
+  private static double hitRatio(ResponseCache responseCache) {
+    long hits = responseCache.hits();
+    long requests = hits + responseCache.misses();
+    return requests == 0 ? 0 : (double) hits / requests;
+  }
+}
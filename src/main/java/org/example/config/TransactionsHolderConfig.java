@@ -0,0 +1,80 @@
+package org.example.config;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import org.example.persistance.TransactionIngestPipeline;
+import org.example.persistance.TransactionsHolder;
+import org.example.persistance.snapshot.SnapshotScheduler;
+import org.example.persistance.snapshot.SnapshotStore;
+import org.example.persistance.tiering.ColdSubtreeStore;
+import org.example.persistance.tiering.SpillScheduler;
+import org.example.persistance.wal.WriteAheadLog;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class TransactionsHolderConfig {
+
+  @Bean
+  public TransactionsHolder transactionsHolder(@Value("${transactions.storage.off-heap-indexes:false}") boolean offHeapIndexes,
+                                               ObjectProvider<SnapshotStore> snapshotStore,
+                                               ObjectProvider<WriteAheadLog> writeAheadLog) {
+    TransactionsHolder transactionsHolder = TransactionsHolder.get();
+    transactionsHolder.useOffHeapIndexes(offHeapIndexes);
+    if (snapshotStore.getIfAvailable() != null || writeAheadLog.getIfAvailable() != null) {
+      transactionsHolder.recover(snapshotStore.getIfAvailable(), writeAheadLog.getIfAvailable());
+    }
+    return transactionsHolder;
+  }
+
+  @Bean(destroyMethod = "close")
+  @ConditionalOnProperty(value = "transactions.ingest.enabled", havingValue = "true")
+  public TransactionIngestPipeline transactionIngestPipeline(TransactionsHolder transactionsHolder,
+                                                             @Value("${transactions.ingest.ring-size}") int ringSize) {
+    return new TransactionIngestPipeline(transactionsHolder, ringSize);
+  }
+
+  @Bean(destroyMethod = "close")
+  @ConditionalOnProperty(value = "transactions.wal.enabled", havingValue = "true")
+  public WriteAheadLog writeAheadLog(@Value("${transactions.wal.directory}") Path directory,
+                                     @Value("${transactions.wal.segment-size}") int segmentSize,
+                                     @Value("${transactions.wal.sync-on-commit}") boolean syncOnCommit,
+                                     @Value("${transactions.wal.flush-interval-ms}") long flushIntervalMillis) throws IOException {
+    return new WriteAheadLog(directory, segmentSize, syncOnCommit, flushIntervalMillis);
+  }
+
+  @Bean
+  @ConditionalOnProperty(value = "transactions.snapshot.enabled", havingValue = "true")
+  public SnapshotStore snapshotStore(@Value("${transactions.snapshot.directory}") Path directory) throws IOException {
+    return new SnapshotStore(directory);
+  }
+
+  @Bean(destroyMethod = "close")
+  @ConditionalOnProperty(value = "transactions.snapshot.enabled", havingValue = "true")
+  public SnapshotScheduler snapshotScheduler(TransactionsHolder transactionsHolder, SnapshotStore snapshotStore,
+                                             @Value("${transactions.snapshot.interval-ms}") long intervalMillis) {
+    return new SnapshotScheduler(() -> transactionsHolder.snapshot(snapshotStore), intervalMillis);
+  }
+
+  @Bean(destroyMethod = "close")
+  @ConditionalOnProperty(value = "transactions.tiering.enabled", havingValue = "true")
+  public ColdSubtreeStore coldSubtreeStore(TransactionsHolder transactionsHolder,
+                                           @Value("${transactions.tiering.directory}") Path directory,
+                                           @Value("${transactions.tiering.segment-size}") long segmentSize) throws IOException {
+    ColdSubtreeStore coldSubtreeStore = new ColdSubtreeStore(directory, segmentSize);
+    transactionsHolder.useColdStore(coldSubtreeStore);
+    return coldSubtreeStore;
+  }
+
+  @Bean(destroyMethod = "close")
+  @ConditionalOnProperty(value = "transactions.tiering.enabled", havingValue = "true")
+  public SpillScheduler spillScheduler(TransactionsHolder transactionsHolder, ColdSubtreeStore coldSubtreeStore,
+                                       @Value("${transactions.tiering.min-age-ms}") long minAgeMillis,
+                                       @Value("${transactions.tiering.interval-ms}") long intervalMillis) {
+    return new SpillScheduler(transactionsHolder, minAgeMillis, intervalMillis);
+  }
+}
@@ -0,0 +1,49 @@
+package org.example.controller;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.example.persistance.TransactionsHolder;
+import org.example.serializer.TransactionBatchRequest;
+import org.example.serializer.TransactionBatchResponse;
+
+// validates one chunk of a batch and inserts the valid items with a single holder call, shared by both web stacks
+public class TransactionBatchProcessor {
+
+  // every chunk is inserted under one acquisition of the tree locks it touches
+  public static final int CHUNK_SIZE = 8192;
+
+  private final TransactionsHolder transactionsHolder;
+  private final Validator validator;
+
+  public TransactionBatchProcessor(TransactionsHolder transactionsHolder, Validator validator) {
+    this.transactionsHolder = transactionsHolder;
+    this.validator = validator;
+  }
+
+  public TransactionBatchResponse[] process(List<TransactionBatchRequest> chunk) {
+    TransactionBatchResponse[] results = new TransactionBatchResponse[chunk.size()];
+    List<TransactionBatchRequest> valid = new ArrayList<>(chunk.size());
+    for (int i = 0; i < chunk.size(); i++) {
+      Set<ConstraintViolation<TransactionBatchRequest>> violations = validator.validate(chunk.get(i));
+      if (violations.isEmpty()) {
+        valid.add(chunk.get(i));
+      } else {
+        results[i] = TransactionBatchResponse.invalid(chunk.get(i).getId(), violations);
+      }
+    }
+
+    RuntimeException[] failures = transactionsHolder.addTransactions(valid);
+    for (int i = 0, inserted = 0; i < chunk.size(); i++) {
+      if (results[i] == null) {
+        RuntimeException failure = failures[inserted++];
+        long id = chunk.get(i).getId();
+        results[i] = failure == null ? TransactionBatchResponse.created(id) : TransactionBatchResponse.failed(id, failure);
+      }
+    }
+    return results;
+  }
+}
@@ -0,0 +1,65 @@
+package org.example.controller;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.example.serializer.BinaryInput;
+import org.example.serializer.BinaryOutput;
+import org.example.serializer.SumSerializer;
+import org.example.serializer.TransactionBinaryFormat;
+import org.example.serializer.TransactionSerializerRequest;
+import org.example.serializer.TransactionSerializerResponse;
+import org.example.serializer.TypePageSerializer;
+import org.example.serializer.TypeTotalsSerializer;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+
+// Reads and writes the controller bodies in TransactionBinaryFormat for requests that ask for it; it goes after the
+// json converters so json stays the default.
+public class TransactionBinaryMessageConverter extends AbstractHttpMessageConverter<Object> {
+
+  public TransactionBinaryMessageConverter() {
+    super(TransactionBinaryFormat.MEDIA_TYPE);
+  }
+
+  @Override
+  protected boolean supports(Class<?> clazz) {
+    return clazz == TransactionSerializerResponse.class || clazz == SumSerializer.class
+        || clazz == TypePageSerializer.class || clazz == TypeTotalsSerializer.class || List.class.isAssignableFrom(clazz);
+  }
+
+  @Override
+  public boolean canRead(Class<?> clazz, MediaType mediaType) {
+    return clazz == TransactionSerializerRequest.class && canRead(mediaType);
+  }
+
+  @Override
+  protected Object readInternal(Class<?> clazz, HttpInputMessage inputMessage) throws IOException {
+    return TransactionBinaryFormat.readRequest(new BinaryInput(inputMessage.getBody()));
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  protected void writeInternal(Object body, HttpOutputMessage outputMessage) throws IOException {
+    BinaryOutput output = new BinaryOutput(outputMessage.getBody());
+    if (body instanceof TransactionSerializerResponse response) {
+      TransactionBinaryFormat.writeResponse(response, output);
+    } else if (body instanceof SumSerializer sum) {
+      TransactionBinaryFormat.writeSum(sum, output);
+    } else if (body instanceof TypePageSerializer page) {
+      TransactionBinaryFormat.writePage(page, output);
+    } else if (body instanceof TypeTotalsSerializer totals) {
+      TransactionBinaryFormat.writeTotals(totals, output);
+    } else if (body instanceof List<?> list && (list.isEmpty() || list.get(0) instanceof Long)) {
+      TransactionBinaryFormat.writeIds((List<Long>) list, output);
+    } else if (body instanceof List<?> list && list.get(0) instanceof TypeTotalsSerializer) {
+      TransactionBinaryFormat.writeTotals((List<TypeTotalsSerializer>) list, output);
+    } else {
+      throw new HttpMessageNotWritableException("No binary encoding for " + body.getClass().getName());
+    }
+    output.flush();
+  }
+}
@@ -1,40 +1,118 @@
 package org.example.controller;
 
 import static org.apache.commons.lang3.StringUtils.isBlank;
+import static org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type.SERVLET;
+import static org.springframework.http.HttpHeaders.CONTENT_TYPE;
 import static org.springframework.http.HttpStatus.CREATED;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
+import static org.springframework.http.MediaType.APPLICATION_NDJSON;
+import static org.springframework.http.MediaType.APPLICATION_NDJSON_VALUE;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.ExampleObject;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.validation.Validator;
+import org.example.cache.ResponseCache;
+import org.example.model.Transaction;
+import org.example.persistance.TransactionIngestPipeline;
 import org.example.persistance.TransactionsHolder;
+import org.example.serializer.BinaryInput;
+import org.example.serializer.BinaryOutput;
 import org.example.serializer.SumSerializer;
+import org.example.serializer.TransactionBatchRequest;
+import org.example.serializer.TransactionBatchResponse;
+import org.example.serializer.TransactionBinaryFormat;
+import org.example.serializer.TransactionJsonWriter;
 import org.example.serializer.TransactionSerializerRequest;
 import org.example.serializer.TransactionSerializerResponse;
+import org.example.serializer.TypePageSerializer;
+import org.example.serializer.TypeTotalsSerializer;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @RestController
 @RequestMapping("/transactions")
+@ConditionalOnWebApplication(type = SERVLET)
 public class TransactionController {
 
   private static final TransactionsHolder transactionHolder = TransactionsHolder.get();
 
+  private final ObjectMapper objectMapper;
+  private final ObjectReader batchReader;
+  private final TransactionBatchProcessor batchProcessor;
+  private final TransactionIngestPipeline ingestPipeline;
+  private final ResponseCache responseCache;
+
+  public TransactionController(ObjectMapper objectMapper, Validator validator,
+                               ObjectProvider<TransactionIngestPipeline> ingestPipeline,
+                               ObjectProvider<ResponseCache> responseCache) {
+    this.objectMapper = objectMapper;
+    this.batchReader = objectMapper.readerFor(TransactionBatchRequest.class);
+    this.batchProcessor = new TransactionBatchProcessor(transactionHolder, validator);
+    this.ingestPipeline = ingestPipeline.getIfAvailable();
+    this.responseCache = responseCache.getIfAvailable();
+  }
+
   @GetMapping("/{id}")
-  public ResponseEntity<TransactionSerializerResponse> findTransactionById(@PathVariable(value = "id") long id) {
-    Optional<TransactionSerializerResponse> transaction = transactionHolder.getTransaction(id);
+  @ApiResponse(responseCode = "200", content = @Content(schema = @Schema(implementation = TransactionSerializerResponse.class)))
+  public ResponseEntity<StreamingResponseBody> findTransactionById(@PathVariable(value = "id") long id,
+                                                                   @RequestParam(value = "depth", required = false)
+                                                                   Integer depth) {
+    Optional<Transaction> transaction = transactionHolder.findVisibleTransaction(id);
 
-    return transaction.map(transactionSerializerResponse -> ResponseEntity.ok().body(transactionSerializerResponse))
+    return transaction.map(found -> {
+          // the whole dump shows the tree as of this sequence, however long it takes to write
+          long readSequence = transactionHolder.visibleSequence(found);
+          return ResponseEntity.ok().contentType(APPLICATION_JSON).<StreamingResponseBody>body(
+              outputStream -> writeJsonTree(found, depth, readSequence, outputStream));
+        })
+        .orElseGet(() -> ResponseEntity.notFound().build());
+  }
+
+  @GetMapping(value = "/{id}", produces = TransactionBinaryFormat.MEDIA_TYPE_VALUE)
+  public ResponseEntity<StreamingResponseBody> findBinaryTransactionById(@PathVariable(value = "id") long id,
+                                                                         @RequestParam(value = "depth", required = false)
+                                                                         Integer depth) {
+    int maxDepth = maxDepthOf(depth);
+    Optional<Transaction> transaction = transactionHolder.findVisibleTransaction(id);
+
+    return transaction.map(found -> {
+          long readSequence = transactionHolder.visibleSequence(found);
+          return ResponseEntity.ok().contentType(TransactionBinaryFormat.MEDIA_TYPE)
+              .<StreamingResponseBody>body(outputStream -> {
+                BinaryOutput output = new BinaryOutput(outputStream);
+                TransactionBinaryFormat.writeTree(found, maxDepth, readSequence, output);
+                output.flush();
+              });
+        })
         .orElseGet(() -> ResponseEntity.notFound().build());
   }
 
@@ -43,12 +121,74 @@ public class TransactionController {
   public ResponseEntity<TransactionSerializerResponse> createTransaction(@PathVariable(value = "id") long id,
                                                                          @Validated @RequestBody
                                                                          TransactionSerializerRequest transactionSerializerRequest) {
-    return ResponseEntity.status(CREATED).body(transactionHolder.addTransaction(id, transactionSerializerRequest));
+    TransactionSerializerResponse created = ingestPipeline == null
+        ? transactionHolder.addTransaction(id, transactionSerializerRequest)
+        : ingestPipeline.addTransaction(id, transactionSerializerRequest);
+    return ResponseEntity.status(CREATED).body(created);
+  }
+
+  @PostMapping(value = "/batch", consumes = {APPLICATION_JSON_VALUE, APPLICATION_NDJSON_VALUE})
+  public void createTransactions(@RequestHeader(CONTENT_TYPE) String contentType, InputStream body,
+                                 HttpServletResponse response) throws IOException {
+    boolean ndjson = APPLICATION_NDJSON.isCompatibleWith(MediaType.parseMediaType(contentType));
+    response.setContentType(ndjson ? APPLICATION_NDJSON_VALUE : APPLICATION_JSON_VALUE);
+    // a json array and a stream of json objects are both read one item at a time
+    try (MappingIterator<TransactionBatchRequest> requests = batchReader.readValues(body);
+         JsonGenerator generator = objectMapper.getFactory().createGenerator(response.getOutputStream())) {
+      generator.setRootValueSeparator(null);
+      if (!ndjson) {
+        generator.writeStartArray();
+      }
+      List<TransactionBatchRequest> chunk = new ArrayList<>(TransactionBatchProcessor.CHUNK_SIZE);
+      while (requests.hasNextValue()) {
+        chunk.add(requests.nextValue());
+        if (chunk.size() == TransactionBatchProcessor.CHUNK_SIZE) {
+          writeBatch(chunk, generator, ndjson);
+          chunk.clear();
+        }
+      }
+      writeBatch(chunk, generator, ndjson);
+      if (!ndjson) {
+        generator.writeEndArray();
+      }
+    }
+  }
+
+  // records follow each other until the body ends, every answer is written as soon as its chunk is stored
+  @PostMapping(value = "/batch", consumes = TransactionBinaryFormat.MEDIA_TYPE_VALUE)
+  public void createBinaryTransactions(InputStream body, HttpServletResponse response) throws IOException {
+    response.setContentType(TransactionBinaryFormat.MEDIA_TYPE_VALUE);
+    BinaryInput input = new BinaryInput(body);
+    BinaryOutput output = new BinaryOutput(response.getOutputStream());
+    List<TransactionBatchRequest> chunk = new ArrayList<>(TransactionBatchProcessor.CHUNK_SIZE);
+    while (!input.atEnd()) {
+      chunk.add(TransactionBinaryFormat.readBatchRequest(input));
+      if (chunk.size() == TransactionBatchProcessor.CHUNK_SIZE) {
+        writeBinaryBatch(chunk, output);
+        chunk.clear();
+      }
+    }
+    writeBinaryBatch(chunk, output);
   }
 
   @GetMapping("/sum/{id}")
   @ApiResponse(responseCode = "200", content = @Content(schema = @Schema(implementation = SumSerializer.class)))
-  public ResponseEntity<SumSerializer> getSum(@PathVariable(value = "id") long id) {
+  public ResponseEntity<byte[]> getSum(@PathVariable(value = "id") long id) throws IOException {
+    Transaction transaction = responseCache == null ? null : transactionHolder.findTransaction(id).orElse(null);
+    byte[] body = transaction == null ? null : responseCache.get(transaction, ResponseCache.Kind.SUM);
+    if (body == null) {
+      // the sum is read at this sequence or a later one, so it has everything stored up to it
+      long readSequence = transaction == null ? 0 : transactionHolder.visibleSequence(transaction);
+      body = objectMapper.writeValueAsBytes(new SumSerializer(transactionHolder.getSum(id)));
+      if (transaction != null) {
+        responseCache.put(transaction, readSequence, ResponseCache.Kind.SUM, body);
+      }
+    }
+    return ResponseEntity.ok().contentType(APPLICATION_JSON).body(body);
+  }
+
+  @GetMapping(value = "/sum/{id}", produces = TransactionBinaryFormat.MEDIA_TYPE_VALUE)
+  public ResponseEntity<SumSerializer> getBinarySum(@PathVariable(value = "id") long id) {
     return ResponseEntity.ok().body(new SumSerializer(transactionHolder.getSum(id)));
   }
 
@@ -60,8 +200,102 @@ public class TransactionController {
     return ResponseEntity.ok().body(transactionHolder.getIdsByType(type));
   }
 
+  @GetMapping(value = "/types/{type}", params = "limit")
+  public ResponseEntity<TypePageSerializer> getPageByType(@PathVariable(value = "type") String type,
+                                                          @RequestParam(value = "after", defaultValue = "0") long after,
+                                                          @RequestParam(value = "limit") int limit) {
+    return ResponseEntity.ok().body(TypePageSerializer.of(transactionHolder.getIdsByType(type, after), limit));
+  }
+
+  @GetMapping(value = "/types/{type}", produces = APPLICATION_NDJSON_VALUE)
+  public ResponseEntity<StreamingResponseBody> streamByType(@PathVariable(value = "type") String type,
+                                                            @RequestParam(value = "after", defaultValue = "0") long after) {
+    // the range is fixed here, ids added while streaming are left for the next request
+    List<Long> ids = transactionHolder.getIdsByType(type, after);
+    return ResponseEntity.ok().contentType(APPLICATION_NDJSON).body(outputStream -> writeIdLines(ids, outputStream));
+  }
+
+  @GetMapping("/totals")
+  public ResponseEntity<List<TypeTotalsSerializer>> getTypeTotals() {
+    return ResponseEntity.ok().body(transactionHolder.getTypeTotals());
+  }
+
+  @GetMapping("/totals/{type}")
+  @ApiResponse(responseCode = "200", content = @Content(schema = @Schema(implementation = TypeTotalsSerializer.class)))
+  public ResponseEntity<TypeTotalsSerializer> getTypeTotals(@PathVariable(value = "type") String type) {
+    return ResponseEntity.ok().body(transactionHolder.getTypeTotals(type));
+  }
+
   @DeleteMapping("/{id}")
   public ResponseEntity<TransactionSerializerResponse> rollback(@PathVariable(value = "id") long id) {
     return ResponseEntity.ok().body(transactionHolder.rollbackTransaction(id));
   }
+
+  private void writeBatch(List<TransactionBatchRequest> chunk, JsonGenerator generator, boolean ndjson) throws IOException {
+    for (TransactionBatchResponse result : batchProcessor.process(chunk)) {
+      generator.writeObject(result);
+      if (ndjson) {
+        generator.writeRaw('\n');
+      }
+    }
+    generator.flush();
+  }
+
+  private void writeBinaryBatch(List<TransactionBatchRequest> chunk, BinaryOutput output) throws IOException {
+    for (TransactionBatchResponse result : batchProcessor.process(chunk)) {
+      TransactionBinaryFormat.writeBatchResponse(result, output);
+    }
+    output.flush();
+  }
+
+  // whole trees are answered from the response cache when there is one, and kept there once written
+  private void writeJsonTree(Transaction transaction, Integer depth, long readSequence, OutputStream outputStream)
+      throws IOException {
+    boolean cacheable = responseCache != null && depth == null;
+    byte[] cached = cacheable ? responseCache.get(transaction, ResponseCache.Kind.TREE) : null;
+    if (cached != null) {
+      outputStream.write(cached);
+      return;
+    }
+    ResponseCache.Recording recording = cacheable ? responseCache.record(outputStream) : null;
+    try (JsonGenerator generator = objectMapper.getFactory().createGenerator(cacheable ? recording : outputStream)) {
+      TransactionJsonWriter.write(transaction, maxDepthOf(depth), readSequence, generator);
+    }
+    if (cacheable) {
+      recording.put(transaction, readSequence, ResponseCache.Kind.TREE);
+    }
+  }
+
+  private static int maxDepthOf(Integer depth) {
+    return depth == null ? TransactionJsonWriter.UNLIMITED_DEPTH : Math.max(0, depth);
+  }
+
+  private static void writeIdLines(List<Long> ids, OutputStream outputStream) throws IOException {
+    byte[] buffer = new byte[8192];
+    int length = 0;
+    for (int i = 0; i < ids.size(); i++) {
+      if (length > buffer.length - 21) {
+        outputStream.write(buffer, 0, length);
+        length = 0;
+      }
+      long id = ids.get(i);
+      int start = length;
+      do {
+        buffer[length++] = (byte) ('0' + id % 10);
+        id /= 10;
+      } while (id > 0);
+      reverse(buffer, start, length - 1);
+      buffer[length++] = '\n';
+    }
+    outputStream.write(buffer, 0, length);
+    outputStream.flush();
+  }
+
+  private static void reverse(byte[] buffer, int from, int to) {
+    for (; from < to; from++, to--) {
+      byte swap = buffer[from];
+      buffer[from] = buffer[to];
+      buffer[to] = swap;
+    }
+  }
 }
@@ -10,4 +10,10 @@ public class AlreadyCreatedTransactionException extends IllegalArgumentException
     super("Transaction Id already created");
   }
 
+  // thrown back at every conflicting retry, a stack trace would only cost
+  @Override
+  public synchronized Throwable fillInStackTrace() {
+    return this;
+  }
+
 }
@@ -0,0 +1,12 @@
+package org.example.exceptions;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(value = HttpStatus.BAD_REQUEST)
+public class InvalidLimitException extends IllegalArgumentException {
+
+  public InvalidLimitException(int limit) {
+    super("Invalid limit: " + limit);
+  }
+}
@@ -0,0 +1,13 @@
+package org.example.exceptions;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(value = HttpStatus.METHOD_NOT_ALLOWED)
+public class ReadOnlyReplicaException extends IllegalStateException {
+
+  public ReadOnlyReplicaException() {
+    super("This node is a read replica, send writes to the leader");
+  }
+
+}
@@ -0,0 +1,13 @@
+package org.example.exceptions;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(value = HttpStatus.SERVICE_UNAVAILABLE)
+public class ReplicaBehindException extends IllegalStateException {
+
+  public ReplicaBehindException(long requested, long applied) {
+    super("Replica is at offset " + applied + ", behind the requested " + requested);
+  }
+
+}
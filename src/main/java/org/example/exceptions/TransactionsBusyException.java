@@ -0,0 +1,13 @@
+package org.example.exceptions;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(value = HttpStatus.SERVICE_UNAVAILABLE)
+public class TransactionsBusyException extends IllegalStateException {
+
+  public TransactionsBusyException() {
+    super("Too many pending writes for this transaction tree, retry later");
+  }
+
+}
@@ -0,0 +1,24 @@
+package org.example.listener;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+// Direct buffers are costly to allocate and only freed by the gc, so connections hand theirs back when they close.
+final class DirectBufferPool {
+
+  private final int bufferBytes;
+  private final ConcurrentLinkedQueue<ByteBuffer> free = new ConcurrentLinkedQueue<>();
+
+  DirectBufferPool(int bufferBytes) {
+    this.bufferBytes = bufferBytes;
+  }
+
+  ByteBuffer acquire() {
+    ByteBuffer buffer = free.poll();
+    return buffer == null ? ByteBuffer.allocateDirect(bufferBytes) : buffer.clear();
+  }
+
+  void release(ByteBuffer buffer) {
+    free.offer(buffer);
+  }
+}
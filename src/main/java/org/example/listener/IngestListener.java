@@ -0,0 +1,392 @@
+package org.example.listener;
+
+import static java.nio.channels.SelectionKey.OP_READ;
+import static java.nio.channels.SelectionKey.OP_WRITE;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.net.ProtocolException;
+import java.net.StandardSocketOptions;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import jakarta.validation.Validator;
+import org.example.controller.TransactionBatchProcessor;
+import org.example.exceptions.InvalidNumberFormatException;
+import org.example.exceptions.ReadOnlyReplicaException;
+import org.example.model.Amounts;
+import org.example.model.Transaction;
+import org.example.persistance.TransactionsHolder;
+import org.example.serializer.TransactionBatchRequest;
+import org.example.serializer.TransactionBatchResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+// Embedded tcp listener for trusted producers: a few selector loops decode pipelined IngestProtocol frames straight
+// out of pooled direct buffers and call the holder, without the servlet stack in between. The adds found in one read
+// are stored as one batch, so a producer that pipelines pays one round of tree locks and durability wait per read.
+public class IngestListener implements Closeable {
+
+  private static final Logger logger = LoggerFactory.getLogger(IngestListener.class);
+  private static final int READ_BUFFER_BYTES = 64 * 1024;
+  private static final int WRITE_BUFFER_BYTES = 256 * 1024;
+  private static final int OK = 200;
+
+  private final TransactionsHolder transactionsHolder;
+  private final TransactionBatchProcessor batchProcessor;
+  private final boolean readOnly;
+  private final ServerSocketChannel serverChannel;
+  private final EventLoop[] loops;
+  private final DirectBufferPool readBuffers = new DirectBufferPool(READ_BUFFER_BYTES);
+  private final DirectBufferPool writeBuffers = new DirectBufferPool(WRITE_BUFFER_BYTES);
+  private volatile boolean closed;
+
+  public IngestListener(TransactionsHolder transactionsHolder, Validator validator, int port, int loopCount,
+                        boolean readOnly) throws IOException {
+    this.transactionsHolder = transactionsHolder;
+    this.batchProcessor = new TransactionBatchProcessor(transactionsHolder, validator);
+    this.readOnly = readOnly;
+    this.serverChannel = ServerSocketChannel.open().bind(new InetSocketAddress(port));
+    this.loops = new EventLoop[loopCount];
+    for (int i = 0; i < loopCount; i++) {
+      loops[i] = new EventLoop(Selector.open());
+      start(loops[i], "ingest-listener-" + i);
+    }
+    start(this::accept, "ingest-acceptor");
+  }
+
+  public int port() {
+    return serverChannel.socket().getLocalPort();
+  }
+
+  @Override
+  public void close() throws IOException {
+    closed = true;
+    serverChannel.close();
+    for (EventLoop loop : loops) {
+      loop.selector.wakeup();
+    }
+  }
+
+  private void accept() {
+    int next = 0;
+    while (!closed) {
+      try {
+        SocketChannel channel = serverChannel.accept();
+        channel.configureBlocking(false);
+        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        loops[next].register(channel);
+        next = (next + 1) % loops.length;
+      } catch (IOException e) {
+        if (!closed) {
+          logger.warn("Cannot accept an ingest connection", e);
+        }
+      }
+    }
+  }
+
+  private static void start(Runnable runnable, String name) {
+    Thread thread = new Thread(runnable, name);
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  private static void closeQuietly(SocketChannel channel) {
+    try {
+      channel.close();
+    } catch (IOException e) {
+      logger.debug("Cannot close ingest connection", e);
+    }
+  }
+
+  private final class EventLoop implements Runnable {
+
+    private final Selector selector;
+    private final Queue<SocketChannel> registrations = new ConcurrentLinkedQueue<>();
+    // shared by the connections of the loop, they are served one at a time
+    private final byte[] typeBytes = new byte[0xFFFF];
+    private final List<TransactionBatchRequest> adds = new ArrayList<>();
+
+    private EventLoop(Selector selector) {
+      this.selector = selector;
+    }
+
+    private void register(SocketChannel channel) {
+      registrations.offer(channel);
+      selector.wakeup();
+    }
+
+    @Override
+    public void run() {
+      try {
+        while (!closed) {
+          selector.select();
+          for (SocketChannel channel = registrations.poll(); channel != null; channel = registrations.poll()) {
+            Connection connection = new Connection(channel);
+            connection.key = channel.register(selector, OP_READ, connection);
+          }
+          Iterator<SelectionKey> selected = selector.selectedKeys().iterator();
+          while (selected.hasNext()) {
+            SelectionKey key = selected.next();
+            selected.remove();
+            Connection connection = (Connection) key.attachment();
+            try {
+              if (key.isWritable()) {
+                connection.onWritable();
+              }
+              if (key.isValid() && key.isReadable()) {
+                connection.onReadable();
+              }
+            } catch (IOException | RuntimeException e) {
+              logger.warn("Closing ingest connection {}", connection.channel, e);
+              adds.clear();
+              connection.close();
+            }
+          }
+        }
+      } catch (IOException e) {
+        logger.error("Ingest listener loop stopped", e);
+      } finally {
+        for (SelectionKey key : selector.keys()) {
+          ((Connection) key.attachment()).close();
+        }
+        for (SocketChannel channel = registrations.poll(); channel != null; channel = registrations.poll()) {
+          closeQuietly(channel);
+        }
+        try {
+          selector.close();
+        } catch (IOException e) {
+          logger.warn("Cannot close the ingest selector", e);
+        }
+      }
+    }
+
+    private final class Connection {
+
+      private final SocketChannel channel;
+      private final ByteBuffer in = readBuffers.acquire();
+      private final ByteBuffer out = writeBuffers.acquire();
+      private SelectionKey key;
+      private boolean released;
+      // answers past the room left in the write buffer, only failures of a batch take more than was reserved for it
+      private ByteBuffer spill;
+
+      private Connection(SocketChannel channel) {
+        this.channel = channel;
+      }
+
+      private void onReadable() throws IOException {
+        if (channel.read(in) < 0) {
+          close();
+          return;
+        }
+        answerBufferedFrames();
+      }
+
+      // frames left unanswered while the write buffer was full
+      private void onWritable() throws IOException {
+        flush();
+        if (out.position() == 0 && in.position() > 0) {
+          answerBufferedFrames();
+        }
+      }
+
+      // a client that pipelined more than one window of frames waits for their answers before sending more, so the
+      // frames already read are answered as soon as the previous window is written
+      private void answerBufferedFrames() throws IOException {
+        do {
+          in.flip();
+          try {
+            answerFrames();
+          } finally {
+            in.compact();
+          }
+          flush();
+        } while (!released && out.position() == 0 && spill == null && hasCompleteFrame());
+      }
+
+      private boolean hasCompleteFrame() {
+        return in.position() >= Integer.BYTES && in.position() >= Integer.BYTES + in.getInt(0);
+      }
+
+      // answers the complete frames while the write buffer has room for every answer still owed
+      private void answerFrames() throws ProtocolException {
+        while (spill == null && in.remaining() >= Integer.BYTES) {
+          int length = in.getInt(in.position());
+          if (length < 1 || length > in.capacity() - Integer.BYTES) {
+            throw new ProtocolException("Invalid frame length: " + length);
+          }
+          if (in.remaining() < Integer.BYTES + length || !hasRoomForAnswers(in.get(in.position() + Integer.BYTES))) {
+            break;
+          }
+          int limit = in.limit();
+          in.position(in.position() + Integer.BYTES);
+          in.limit(in.position() + length);
+          try {
+            answerFrame(in.get());
+            if (in.hasRemaining()) {
+              throw new ProtocolException("Frame longer than its command: " + length + " bytes");
+            }
+          } catch (BufferUnderflowException e) {
+            throw new ProtocolException("Frame shorter than its command: " + length + " bytes");
+          } finally {
+            in.limit(limit);
+          }
+        }
+        storeAdds();
+      }
+
+      // room for the answers of the buffered adds and of the next frame if none of them fails
+      private boolean hasRoomForAnswers(byte command) {
+        int next = command == IngestProtocol.SUM ? IngestProtocol.SUM_ANSWER_BYTES : IngestProtocol.ANSWER_BYTES;
+        return out.remaining() >= adds.size() * IngestProtocol.ANSWER_BYTES + next;
+      }
+
+      private void answerFrame(byte command) throws ProtocolException {
+        if (command == IngestProtocol.ADD) {
+          readAdd();
+          return;
+        }
+        long id = in.getLong();
+        storeAdds();
+        if (command == IngestProtocol.ROLLBACK) {
+          rollback(id);
+        } else if (command == IngestProtocol.SUM) {
+          sum(id);
+        } else {
+          throw new ProtocolException("Unknown command: " + command);
+        }
+      }
+
+      private void readAdd() {
+        long id = in.getLong();
+        long amountCents = in.getLong();
+        int amountScale = in.get();
+        int typeLength = Short.toUnsignedInt(in.getShort());
+        in.get(typeBytes, 0, typeLength);
+        String type = new String(typeBytes, 0, typeLength, UTF_8);
+        long parentId = in.getLong();
+        if (readOnly) {
+          storeAdds();
+          fail(id, new ReadOnlyReplicaException());
+          return;
+        }
+        BigDecimal amount;
+        try {
+          amount = Amounts.fromCents(amountCents, amountScale);
+        } catch (ArithmeticException e) {
+          storeAdds();
+          fail(id, new InvalidNumberFormatException());
+          return;
+        }
+        Optional<Long> parent = parentId == Transaction.NO_PARENT ? Optional.empty() : Optional.of(parentId);
+        adds.add(new TransactionBatchRequest(id, amount, type, parent));
+      }
+
+      private void storeAdds() {
+        if (adds.isEmpty()) {
+          return;
+        }
+        for (TransactionBatchResponse result : batchProcessor.process(adds)) {
+          if (result.getError() == null) {
+            IngestProtocol.answer(answers(IngestProtocol.ANSWER_BYTES), result.getStatus());
+          } else {
+            fail(result);
+          }
+        }
+        adds.clear();
+      }
+
+      private void rollback(long id) {
+        if (readOnly) {
+          fail(id, new ReadOnlyReplicaException());
+          return;
+        }
+        try {
+          transactionsHolder.rollback(id);
+          IngestProtocol.answer(answers(IngestProtocol.ANSWER_BYTES), OK);
+        } catch (RuntimeException e) {
+          fail(id, e);
+        }
+      }
+
+      private void sum(long id) {
+        try {
+          BigDecimal sum = transactionsHolder.getSum(id);
+          IngestProtocol.answerSum(answers(IngestProtocol.SUM_ANSWER_BYTES), OK, Amounts.toCents(sum), sum.scale());
+        } catch (RuntimeException e) {
+          fail(id, e);
+        }
+      }
+
+      private void fail(long id, RuntimeException failure) {
+        fail(TransactionBatchResponse.failed(id, failure));
+      }
+
+      private void fail(TransactionBatchResponse result) {
+        IngestProtocol.answerFailure(answers(IngestProtocol.MAX_RESPONSE_BYTES), result.getStatus(), result.getError());
+      }
+
+      // the write buffer while the answer fits in it and nothing spilled before, so answers stay in order
+      private ByteBuffer answers(int bytes) {
+        if (spill == null && out.remaining() >= bytes) {
+          return out;
+        }
+        if (spill == null) {
+          spill = ByteBuffer.allocate(READ_BUFFER_BYTES);
+        } else if (spill.remaining() < bytes) {
+          ByteBuffer grown = ByteBuffer.allocate(spill.capacity() * 2);
+          spill = grown.put(spill.flip());
+        }
+        return spill;
+      }
+
+      // reads pause while answers are waiting for the client, which keeps a slow reader from growing our buffers
+      private void flush() throws IOException {
+        if (released) {
+          return;
+        }
+        out.flip();
+        try {
+          channel.write(out);
+        } finally {
+          out.compact();
+        }
+        if (spill != null) {
+          spill.flip();
+          int moved = Math.min(spill.remaining(), out.remaining());
+          out.put(spill.slice(spill.position(), moved));
+          spill.position(spill.position() + moved).compact();
+          if (spill.position() == 0) {
+            spill = null;
+          }
+        }
+        key.interestOps(out.position() > 0 ? OP_WRITE : OP_READ);
+      }
+
+      private void close() {
+        if (released) {
+          return;
+        }
+        released = true;
+        key.cancel();
+        closeQuietly(channel);
+        readBuffers.release(in);
+        writeBuffers.release(out);
+      }
+    }
+  }
+}
@@ -0,0 +1,58 @@
+package org.example.listener;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.nio.ByteBuffer;
+
+// Frames are an int length and that many bytes, big endian: a command byte and its fields. ADD carries the fields of
+// a binary batch record (id, cents, scale, type, parent id or 0), ROLLBACK and SUM an id. Every frame is answered in
+// order with an int length, the status the rest api would have answered with, and then the amount of a SUM or the
+// message of a failure.
+public final class IngestProtocol {
+
+  public static final byte ADD = 1;
+  public static final byte ROLLBACK = 2;
+  public static final byte SUM = 3;
+
+  static final int ANSWER_BYTES = Integer.BYTES * 2;
+  static final int SUM_ANSWER_BYTES = ANSWER_BYTES + Long.BYTES + 1;
+  static final int MAX_ERROR_BYTES = 256;
+  static final int MAX_RESPONSE_BYTES = Integer.BYTES * 2 + Short.BYTES + MAX_ERROR_BYTES;
+
+  private IngestProtocol() {
+  }
+
+  public static void add(ByteBuffer buffer, long id, long amountCents, int amountScale, byte[] type, long parentId) {
+    buffer.putInt(1 + Long.BYTES * 2 + 1 + Short.BYTES + type.length + Long.BYTES)
+        .put(ADD)
+        .putLong(id)
+        .putLong(amountCents)
+        .put((byte) amountScale)
+        .putShort((short) type.length)
+        .put(type)
+        .putLong(parentId);
+  }
+
+  public static void rollback(ByteBuffer buffer, long id) {
+    buffer.putInt(1 + Long.BYTES).put(ROLLBACK).putLong(id);
+  }
+
+  public static void sum(ByteBuffer buffer, long id) {
+    buffer.putInt(1 + Long.BYTES).put(SUM).putLong(id);
+  }
+
+  static void answer(ByteBuffer buffer, int status) {
+    buffer.putInt(Integer.BYTES).putInt(status);
+  }
+
+  static void answerSum(ByteBuffer buffer, int status, long amountCents, int amountScale) {
+    buffer.putInt(Integer.BYTES + Long.BYTES + 1).putInt(status).putLong(amountCents).put((byte) amountScale);
+  }
+
+  // messages are cut to MAX_ERROR_BYTES so an answer never takes more than MAX_RESPONSE_BYTES
+  static void answerFailure(ByteBuffer buffer, int status, String message) {
+    byte[] bytes = message.getBytes(UTF_8);
+    int length = Math.min(bytes.length, MAX_ERROR_BYTES);
+    buffer.putInt(Integer.BYTES + Short.BYTES + length).putInt(status).putShort((short) length).put(bytes, 0, length);
+  }
+}
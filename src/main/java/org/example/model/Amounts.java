@@ -0,0 +1,44 @@
+package org.example.model;
+
+import java.math.BigDecimal;
+
+import org.example.exceptions.InvalidAmountException;
+import org.example.exceptions.InvalidNumberFormatException;
+
+public final class Amounts {
+
+  public static final int SCALE = 2;
+
+  private Amounts() {
+  }
+
+  public static long toCents(BigDecimal amount) {
+    try {
+      return amount.movePointRight(SCALE).longValueExact();
+    } catch (ArithmeticException e) {
+      throw new InvalidNumberFormatException();
+    }
+  }
+
+  public static BigDecimal fromCents(long cents) {
+    if (cents % 100 == 0) {
+      return BigDecimal.valueOf(cents / 100);
+    }
+    if (cents % 10 == 0) {
+      return BigDecimal.valueOf(cents / 10, 1);
+    }
+    return BigDecimal.valueOf(cents, SCALE);
+  }
+
+  public static BigDecimal fromCents(long cents, int scale) {
+    return BigDecimal.valueOf(cents, SCALE).setScale(scale);
+  }
+
+  public static long add(long cents, long delta) {
+    try {
+      return Math.addExact(cents, delta);
+    } catch (ArithmeticException e) {
+      throw new InvalidAmountException();
+    }
+  }
+}
@@ -0,0 +1,7 @@
+package org.example.model;
+
+// Children of a frozen subtree kept outside of the heap, read back whenever someone walks into it
+public interface SpilledChilds {
+
+  Transaction[] load(Transaction parent);
+}
@@ -1,17 +1,16 @@
 package org.example.model;
 
 import static java.math.BigDecimal.ZERO;
-import static java.util.Collections.synchronizedList;
 import static java.util.Objects.requireNonNull;
-import static java.util.Optional.empty;
 
 import static org.apache.commons.lang3.StringUtils.isBlank;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.lang.ref.SoftReference;
 import java.math.BigDecimal;
-import java.util.LinkedList;
-import java.util.List;
+import java.util.Arrays;
 import java.util.Optional;
-import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.example.exceptions.InvalidAmountException;
 import org.example.exceptions.InvalidNumberFormatException;
@@ -20,26 +19,68 @@ import org.example.exceptions.NegativeIdException;
 
 public class Transaction {
 
+  public static final long NO_PARENT = 0;
+
+  private static final VarHandle ACTIVE;
+
+  static {
+    try {
+      ACTIVE = MethodHandles.lookup().findVarHandle(Transaction.class, "active", boolean.class);
+    } catch (ReflectiveOperationException e) {
+      throw new ExceptionInInitializerError(e);
+    }
+  }
+
   private final long id;
-  private final Optional<Long> parentId;
-  private final BigDecimal amount;
-  private final List<Transaction> childs;
+  private final long parentId;
+  private final long amountCents;
+  private final byte amountScale;
   private final String type;
-  private AtomicBoolean isActive = new AtomicBoolean(true);
+  private long rootId;
+  private Transaction parent;
+  // volatile since a spill swaps the array for spilledChilds while readers walk the subtree
+  private volatile Transaction[] childs;
+  private volatile int childCount;
+  private volatile SpilledChilds spilledChilds;
+  private volatile SoftReference<Transaction[]> loadedChilds;
+  private volatile AmountVersion subtreeAmount;
+  private long createdSequence;
+  private volatile long rollbackSequence;
+  private volatile boolean active = true;
 
   public Transaction(long id, BigDecimal amount, String type) {
-    this(id, amount, type, empty());
+    this(id, amount, type, NO_PARENT);
   }
 
   public Transaction(long id, BigDecimal amount, String type, Optional<Long> parentId) {
+    this(id, amount, type, parentId.orElse(NO_PARENT));
+  }
+
+  private Transaction(long id, long parentId, long amountCents, byte amountScale, String type) {
+    this.id = id;
+    this.parentId = parentId;
+    this.amountCents = amountCents;
+    this.amountScale = amountScale;
+    this.type = type.intern();
+    this.rootId = id;
+    this.subtreeAmount = new AmountVersion(0, amountCents, amountScale);
+  }
+
+  public static Transaction restore(long id, long parentId, long amountCents, int amountScale, String type) {
+    return new Transaction(id, parentId, amountCents, (byte) amountScale, type);
+  }
+
+  public Transaction(long id, BigDecimal amount, String type, long parentId) {
     validateId(id);
     validateDecimals(amount);
     validateType(type);
     this.id = id;
-    this.amount = amount;
-    this.childs = synchronizedList(new LinkedList<>());
-    this.type = type;
+    this.amountCents = Amounts.toCents(amount);
+    this.amountScale = (byte) amount.scale();
+    this.type = type.intern();
     this.parentId = parentId;
+    this.rootId = id;
+    this.subtreeAmount = new AmountVersion(0, amountCents, amountScale);
   }
 
   public long getId() {
@@ -47,25 +88,72 @@ public class Transaction {
   }
 
   public BigDecimal getAmount() {
-    return amount;
+    return Amounts.fromCents(amountCents, amountScale);
+  }
+
+  public long getAmountCents() {
+    return amountCents;
+  }
+
+  public byte getAmountScale() {
+    return amountScale;
   }
 
   public String getType() {
     return type;
   }
 
+  // a rollback only marks the transaction it was asked for, its descendants are inactive through that ancestor
   public boolean isActive() {
-    return isActive.get();
+    for (Transaction node = this; node != null; node = node.parent) {
+      if (!node.active) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  public boolean isActiveAt(long sequence) {
+    for (Transaction node = this; node != null; node = node.parent) {
+      if (node.isRollbackRootAt(sequence)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  public boolean isRollbackRoot() {
+    return !active;
+  }
+
+  public boolean isRollbackRootAt(long sequence) {
+    return !active && rollbackSequence <= sequence;
   }
 
   public void rollback() {
-    if (!isActive.compareAndSet(true, false)) {
+    rollback(0);
+  }
+
+  public void rollback(long sequence) {
+    if (!active) {
+      throw new IllegalStateException("ERROR: Cannot rollback transaction id: " + id);
+    }
+    rollbackSequence = sequence;
+    if (!ACTIVE.compareAndSet(this, true, false)) {
       throw new IllegalStateException("ERROR: Cannot rollback transaction id: " + id);
     }
   }
 
-  public void setActive() {
-    isActive.set(true);
+  public long getCreatedSequence() {
+    return createdSequence;
+  }
+
+  public void setCreatedSequence(long createdSequence) {
+    this.createdSequence = createdSequence;
+  }
+
+  public long getRollbackSequence() {
+    return rollbackSequence;
   }
 
   private void validateId(long id) {
@@ -79,7 +167,7 @@ public class Transaction {
     if (amount.compareTo(ZERO) < 0) {
       throw new InvalidAmountException();
     }
-    if (amount.scale() > 2) {
+    if (amount.scale() > Amounts.SCALE || amount.scale() < Byte.MIN_VALUE) {
       throw new InvalidNumberFormatException();
     }
   }
@@ -90,15 +178,143 @@ public class Transaction {
     }
   }
 
-  public List<Transaction> getChilds() {
-    return childs;
+  public int getChildCount() {
+    return childCount;
+  }
+
+  // children are added in sequence order, so the ones stored up to a sequence are a prefix
+  public int getChildCountAt(long sequence) {
+    int count = childCount;
+    Transaction[] childs = childs();
+    while (count > 0 && childs[count - 1].getCreatedSequence() > sequence) {
+      count--;
+    }
+    return count;
+  }
+
+  public Transaction getChild(int index) {
+    return childs()[index];
+  }
+
+  // only for the children of a rollbacked transaction, nothing can be added under it anymore; spilledChilds is set
+  // first, so a reader that sees the array gone finds where to load it from
+  public void spillChilds(SpilledChilds spilled) {
+    spilledChilds = spilled;
+    childs = null;
+  }
+
+  public boolean isSpilled() {
+    return spilledChilds != null;
   }
 
   public void addChild(Transaction transaction) {
-    childs.add(transaction);
+    int count = childCount;
+    Transaction[] current = childs;
+    if (current == null) {
+      current = new Transaction[1];
+    } else if (count == current.length) {
+      current = Arrays.copyOf(current, count + (count >> 1) + 1);
+    }
+    current[count] = transaction;
+    childs = current;
+    childCount = count + 1;
+  }
+
+  public boolean hasParent() {
+    return parentId != NO_PARENT;
   }
 
-  public Optional<Long> getParentId() {
+  public long getParentId() {
     return parentId;
   }
+
+  public long getRootId() {
+    return rootId;
+  }
+
+  public Transaction getParent() {
+    return parent;
+  }
+
+  public void setParent(Transaction parent) {
+    this.parent = parent;
+    this.rootId = parent.getRootId();
+  }
+
+  public long getSubtreeAmountCents() {
+    return subtreeAmount.cents;
+  }
+
+  public long getSubtreeAmountCentsAt(long sequence) {
+    return subtreeAmountAt(sequence).cents;
+  }
+
+  public int getSubtreeAmountScale() {
+    return subtreeAmount.scale;
+  }
+
+  // rendered with the largest scale of the amounts added to the subtree, as summing the amounts themselves would
+  public BigDecimal getSubtreeAmountAt(long sequence) {
+    AmountVersion version = subtreeAmountAt(sequence);
+    return Amounts.fromCents(version.cents, version.scale);
+  }
+
+  // while recovering, before any reader
+  public void addToSubtreeAmount(long deltaCents, int scale) {
+    AmountVersion current = subtreeAmount;
+    subtreeAmount = new AmountVersion(0, Amounts.add(current.cents, deltaCents), Math.max(current.scale, scale));
+  }
+
+  // keeps every version a reader at oldestRead or later may still ask for and drops the rest
+  public void addToSubtreeAmount(long deltaCents, int scale, long sequence, long oldestRead) {
+    AmountVersion current = subtreeAmount;
+    AmountVersion version =
+        new AmountVersion(sequence, Amounts.add(current.cents, deltaCents), Math.max(current.scale, scale));
+    AmountVersion kept = current;
+    while (kept.sequence > oldestRead && kept.previous != null) {
+      kept = kept.previous;
+    }
+    kept.previous = null;
+    version.previous = current;
+    subtreeAmount = version;
+  }
+
+  private AmountVersion subtreeAmountAt(long sequence) {
+    AmountVersion version = subtreeAmount;
+    while (version.sequence > sequence && version.previous != null) {
+      version = version.previous;
+    }
+    return version;
+  }
+
+  // spilled children are loaded back on demand and kept only as long as memory allows
+  private Transaction[] childs() {
+    Transaction[] current = childs;
+    SpilledChilds spilled = spilledChilds;
+    if (current != null || spilled == null) {
+      return current;
+    }
+    SoftReference<Transaction[]> loaded = loadedChilds;
+    current = loaded == null ? null : loaded.get();
+    if (current == null) {
+      current = spilled.load(this);
+      loadedChilds = new SoftReference<>(current);
+    }
+    return current;
+  }
+
+  private static final class AmountVersion {
+
+    private final long sequence;
+    private final long cents;
+    private final int scale;
+    private AmountVersion previous;
+
+    private AmountVersion(long sequence, long cents, int scale) {
+      this.sequence = sequence;
+      this.cents = cents;
+      this.scale = scale;
+    }
+  }
+
 }
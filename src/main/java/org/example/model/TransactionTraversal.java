@@ -0,0 +1,131 @@
+package org.example.model;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+public final class TransactionTraversal {
+
+  private static final int INITIAL_CAPACITY = 64;
+  private static final int RETAINED_CAPACITY = 1 << 16;
+  private static final ThreadLocal<TransactionTraversal> traversals = ThreadLocal.withInitial(TransactionTraversal::new);
+
+  private Transaction[] nodes = new Transaction[INITIAL_CAPACITY];
+  private Object[] contexts = new Object[INITIAL_CAPACITY];
+  private int size;
+  private boolean inUse;
+
+  public interface Visitor<C> {
+
+    C visit(Transaction transaction, C parentContext);
+  }
+
+  public static TransactionTraversal get() {
+    TransactionTraversal traversal = traversals.get();
+    return traversal.inUse ? new TransactionTraversal() : traversal;
+  }
+
+  private TransactionTraversal() {
+  }
+
+  public <C> void visitDescendants(Transaction root, C rootContext, Visitor<C> visitor) {
+    visitDescendants(root, rootContext, Long.MAX_VALUE, visitor);
+  }
+
+  // only the descendants stored up to the sequence
+  @SuppressWarnings("unchecked")
+  public <C> void visitDescendants(Transaction root, C rootContext, long sequence, Visitor<C> visitor) {
+    inUse = true;
+    try {
+      pushChildren(root, rootContext, sequence);
+      while (size > 0) {
+        Transaction node = nodes[--size];
+        C context = (C) contexts[size];
+        nodes[size] = null;
+        contexts[size] = null;
+        pushChildren(node, visitor.visit(node, context), sequence);
+      }
+    } finally {
+      release();
+    }
+  }
+
+  // the root and every descendant not under another rollbacked transaction
+  public void visitActive(Transaction root, Consumer<Transaction> visitor) {
+    inUse = true;
+    try {
+      push(root, null);
+      while (size > 0) {
+        Transaction node = nodes[--size];
+        nodes[size] = null;
+        visitor.accept(node);
+        pushActiveChildren(node);
+      }
+    } finally {
+      release();
+    }
+  }
+
+  public void restore(Transaction root) {
+    inUse = true;
+    try {
+      push(root, null);
+      for (int next = 0; next < size; next++) {
+        Transaction node = nodes[next];
+        Transaction parent = node.getParent();
+        if (parent != null) {
+          node.setParent(parent);
+        }
+        for (int i = 0; i < node.getChildCount(); i++) {
+          push(node.getChild(i), null);
+        }
+      }
+      // breadth first order keeps every child after its parent, so walking it backwards sums bottom-up
+      for (int i = size - 1; i > 0; i--) {
+        Transaction node = nodes[i];
+        // a rollbacked subtree takes its total out of its parent, its scale stays as it does while running
+        long cents = node.isRollbackRoot() ? 0 : node.getSubtreeAmountCents();
+        node.getParent().addToSubtreeAmount(cents, node.getSubtreeAmountScale());
+      }
+    } finally {
+      release();
+    }
+  }
+
+  private void pushChildren(Transaction parent, Object context, long sequence) {
+    int count = sequence == Long.MAX_VALUE ? parent.getChildCount() : parent.getChildCountAt(sequence);
+    for (int i = count - 1; i >= 0; i--) {
+      push(parent.getChild(i), context);
+    }
+  }
+
+  private void pushActiveChildren(Transaction parent) {
+    int count = parent.getChildCount();
+    for (int i = 0; i < count; i++) {
+      Transaction child = parent.getChild(i);
+      if (!child.isRollbackRoot()) {
+        push(child, null);
+      }
+    }
+  }
+
+  private void push(Transaction node, Object context) {
+    if (size == nodes.length) {
+      nodes = Arrays.copyOf(nodes, size << 1);
+      contexts = Arrays.copyOf(contexts, size << 1);
+    }
+    nodes[size] = node;
+    contexts[size++] = context;
+  }
+
+  private void release() {
+    if (nodes.length > RETAINED_CAPACITY) {
+      nodes = new Transaction[INITIAL_CAPACITY];
+      contexts = new Object[INITIAL_CAPACITY];
+    } else {
+      Arrays.fill(nodes, 0, size, null);
+      Arrays.fill(contexts, 0, size, null);
+    }
+    size = 0;
+    inUse = false;
+  }
+}
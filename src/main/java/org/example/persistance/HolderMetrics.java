@@ -0,0 +1,34 @@
+package org.example.persistance;
+
+// Hook for the holder instrumentation. Every method defaults to doing nothing and start() skips the clock, so the
+// disabled path neither reads time nor allocates.
+public interface HolderMetrics {
+
+  HolderMetrics NOOP = new HolderMetrics() {
+  };
+
+  enum Operation {
+    ADD, BATCH_ADD, REPLAY, SUM, IDS_BY_TYPE, TYPE_TOTALS, ROLLBACK, SNAPSHOT, SPILL
+  }
+
+  default boolean isEnabled() {
+    return false;
+  }
+
+  default long start() {
+    return 0;
+  }
+
+  default void recordOperation(Operation operation, long start) {
+  }
+
+  // called while still holding the lock, so the hold time ends at the call
+  default void recordLock(long requested, long acquired) {
+  }
+
+  default void recordTreeShape(Operation operation, int depth, int fanOut) {
+  }
+
+  default void recordFailure(RuntimeException failure) {
+  }
+}
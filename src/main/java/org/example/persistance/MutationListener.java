@@ -0,0 +1,17 @@
+package org.example.persistance;
+
+import org.example.model.Transaction;
+
+// Sees every stored add and rollback, called under the shard lock of the tree so the calls of one tree keep their order.
+// Implementations must be quick and must not throw, the mutation is already applied.
+public interface MutationListener {
+
+  MutationListener NONE = new MutationListener() {
+  };
+
+  default void onAdd(Transaction transaction) {
+  }
+
+  default void onRollback(Transaction transaction) {
+  }
+}
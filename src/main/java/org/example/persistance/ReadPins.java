@@ -0,0 +1,45 @@
+package org.example.persistance;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Sequences readers are reading at, so writers know which old versions nobody can ask for anymore. A slot holds the
+// pinned sequence plus one, zero marks it free.
+final class ReadPins {
+
+  private static final int MIN_SLOTS = 64;
+
+  private final AtomicLongArray slots;
+  private final int mask;
+
+  ReadPins() {
+    int size = Integer.highestOneBit(Math.max(MIN_SLOTS, Runtime.getRuntime().availableProcessors() * 8) - 1) << 1;
+    this.slots = new AtomicLongArray(size);
+    this.mask = size - 1;
+  }
+
+  int pin(long sequence) {
+    int slot = (int) Thread.currentThread().getId() & mask;
+    while (!slots.compareAndSet(slot, 0, sequence + 1)) {
+      slot = (slot + 1) & mask;
+      if (slot == 0) {
+        Thread.onSpinWait();
+      }
+    }
+    return slot;
+  }
+
+  void unpin(int slot) {
+    slots.set(slot, 0);
+  }
+
+  long oldestPinned(long visibleSequence) {
+    long oldest = visibleSequence;
+    for (int slot = 0; slot < slots.length(); slot++) {
+      long pinned = slots.get(slot);
+      if (pinned != 0) {
+        oldest = Math.min(oldest, pinned - 1);
+      }
+    }
+    return oldest;
+  }
+}
@@ -0,0 +1,187 @@
+package org.example.persistance;
+
+import java.io.Closeable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.example.exceptions.AlreadyCreatedTransactionException;
+import org.example.model.Transaction;
+import org.example.persistance.storage.MpscRingBuffer;
+import org.example.serializer.TransactionSerializerRequest;
+import org.example.serializer.TransactionSerializerResponse;
+
+// Single writer for adds: request threads only validate and publish into the ring, one thread drains it and stores
+// each drained batch with one round of shard locks and one wait for the write ahead log.
+public class TransactionIngestPipeline implements Closeable {
+
+  private static final int DRAIN_BATCH = 1024;
+  private static final long FULL_BACKOFF_NANOS = 10_000;
+
+  private final TransactionsHolder transactionsHolder;
+  private final MpscRingBuffer<AddCommand> ring;
+  private final Thread writer;
+  private final Transaction[] batch = new Transaction[DRAIN_BATCH];
+  private final AddCommand[] commands = new AddCommand[DRAIN_BATCH];
+  private final ReentrantLock sweepLock = new ReentrantLock();
+  private int drained;
+  private volatile boolean parked;
+  private volatile boolean running = true;
+
+  public TransactionIngestPipeline(TransactionsHolder transactionsHolder, int capacity) {
+    this.transactionsHolder = transactionsHolder;
+    this.ring = new MpscRingBuffer<>(capacity);
+    this.writer = new Thread(this::drainLoop, "transactions-ingest");
+    writer.setDaemon(true);
+    writer.start();
+  }
+
+  public CompletableFuture<TransactionSerializerResponse> submit(long id, TransactionSerializerRequest request) {
+    Transaction transaction = new Transaction(id, request.getAmount(), request.getType(), request.getParentId());
+    // retries are answered right away, only new ids go through the writer
+    Transaction stored = transactionsHolder.find(id);
+    if (stored != null) {
+      return CompletableFuture.completedFuture(transactionsHolder.replay(stored, transaction));
+    }
+    AddCommand command = new AddCommand(transaction);
+    // a full ring pushes back on the callers instead of queueing without bound
+    while (!ring.offer(command)) {
+      if (!running) {
+        throw closed();
+      }
+      LockSupport.parkNanos(FULL_BACKOFF_NANOS);
+    }
+    if (!running) {
+      // close may have swept the ring before this offer, the writer applies the command or it is failed here
+      awaitWriter();
+      failQueued();
+    } else if (parked) {
+      LockSupport.unpark(writer);
+    }
+    return command.result;
+  }
+
+  public TransactionSerializerResponse addTransaction(long id, TransactionSerializerRequest request) {
+    try {
+      return submit(id, request).join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException cause) {
+        throw cause;
+      }
+      throw e;
+    }
+  }
+
+  @Override
+  public void close() {
+    running = false;
+    LockSupport.unpark(writer);
+    awaitWriter();
+    failQueued();
+  }
+
+  private void awaitWriter() {
+    try {
+      writer.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  // only once the writer is gone, a caller interrupted while waiting for it leaves the sweep to close; the lock keeps
+  // the sweeps of close and of late callers from draining the ring together
+  private void failQueued() {
+    if (writer.isAlive()) {
+      return;
+    }
+    sweepLock.lock();
+    try {
+      int swept;
+      do {
+        swept = ring.drain(command -> command.result.completeExceptionally(closed()), DRAIN_BATCH);
+      } while (swept > 0);
+    } finally {
+      sweepLock.unlock();
+    }
+  }
+
+  private static IllegalStateException closed() {
+    return new IllegalStateException("Ingest pipeline is closed");
+  }
+
+  private void drainLoop() {
+    while (running || !ring.isEmpty()) {
+      drained = 0;
+      if (ring.drain(this::collect, DRAIN_BATCH) > 0) {
+        apply();
+        continue;
+      }
+      // the flag is set before checking the ring again, so a producer that published after the drain unparks us
+      parked = true;
+      if (ring.isEmpty() && running) {
+        LockSupport.park(this);
+      }
+      parked = false;
+    }
+  }
+
+  private void collect(AddCommand command) {
+    commands[drained] = command;
+    batch[drained++] = command.transaction;
+  }
+
+  private void apply() {
+    RuntimeException[] failures;
+    try {
+      failures = transactionsHolder.addTransactionsInOrder(batch, drained);
+    } catch (RuntimeException e) {
+      for (int i = 0; i < drained; i++) {
+        commands[i].result.completeExceptionally(e);
+      }
+      clear();
+      return;
+    }
+    for (int i = 0; i < drained; i++) {
+      if (failures[i] instanceof AlreadyCreatedTransactionException) {
+        answerRetry(commands[i], failures[i]);
+      } else if (failures[i] != null) {
+        commands[i].result.completeExceptionally(failures[i]);
+      } else {
+        commands[i].result.complete(new TransactionSerializerResponse(commands[i].transaction));
+      }
+    }
+    clear();
+  }
+
+  // a retry queued behind its original, or next to it in the same batch
+  private void answerRetry(AddCommand command, RuntimeException failure) {
+    Transaction stored = transactionsHolder.find(command.transaction.getId());
+    if (stored == null) {
+      command.result.completeExceptionally(failure);
+      return;
+    }
+    try {
+      command.result.complete(transactionsHolder.replay(stored, command.transaction));
+    } catch (RuntimeException e) {
+      command.result.completeExceptionally(e);
+    }
+  }
+
+  private void clear() {
+    for (int i = 0; i < drained; i++) {
+      commands[i] = null;
+      batch[i] = null;
+    }
+  }
+
+  private static final class AddCommand {
+
+    private final Transaction transaction;
+    private final CompletableFuture<TransactionSerializerResponse> result = new CompletableFuture<>();
+
+    private AddCommand(Transaction transaction) {
+      this.transaction = transaction;
+    }
+  }
+}
@@ -0,0 +1,33 @@
+package org.example.persistance;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+// The trees whose root hashes to this shard are only written under its lock; every write in progress holds back
+// the sequence up to which type listings may read.
+final class TransactionShard {
+
+  static final long NOTHING_PENDING = Long.MAX_VALUE;
+
+  // ReentrantLock instead of a monitor, a virtual thread waiting here unmounts instead of pinning its carrier
+  private final ReentrantLock lock = new ReentrantLock();
+  private volatile long pendingSequence = NOTHING_PENDING;
+
+  void lock() {
+    lock.lock();
+  }
+
+  // the lower bound is read and published once the lock is held, before any sequence of the write is taken; read
+  // before waiting for the lock it would be stale and move the visible sequence back
+  void markPending(long nextSequence) {
+    pendingSequence = nextSequence;
+  }
+
+  void unlock() {
+    pendingSequence = NOTHING_PENDING;
+    lock.unlock();
+  }
+
+  long pendingSequence() {
+    return pendingSequence;
+  }
+}
@@ -1,146 +1,857 @@
 package org.example.persistance;
 
+import static java.math.BigDecimal.ZERO;
 import static java.util.Collections.emptyList;
-import static java.util.Collections.synchronizedList;
-import static java.util.Collections.unmodifiableList;
 import static java.util.Optional.empty;
 import static java.util.Optional.of;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.math.BigDecimal;
-import java.util.LinkedList;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Queue;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import java.util.stream.IntStream;
 
 import org.example.exceptions.AlreadyCreatedTransactionException;
 import org.example.exceptions.AlreadyRollbackedException;
 import org.example.exceptions.TransactionNotFoundException;
+import org.example.model.Amounts;
+import org.example.model.SpilledChilds;
 import org.example.model.Transaction;
+import org.example.model.TransactionTraversal;
+import org.example.persistance.HolderMetrics.Operation;
+import org.example.persistance.snapshot.SnapshotStore;
+import org.example.persistance.storage.LongObjectConcurrentMap;
+import org.example.persistance.tiering.ColdSubtreeStore;
+import org.example.persistance.wal.WriteAheadLog;
+import org.example.serializer.TransactionBatchRequest;
 import org.example.serializer.TransactionSerializerRequest;
 import org.example.serializer.TransactionSerializerResponse;
+import org.example.serializer.TypeTotalsSerializer;
 
 public class TransactionsHolder {
 
-  private final Map<Long, Transaction> transactionMap = new ConcurrentHashMap<>();
-  private final Map<String, List<Long>> transactionByTypeMap = new ConcurrentHashMap<>();
+  private final LongObjectConcurrentMap<Transaction> transactionMap = new LongObjectConcurrentMap<>();
+  private final Map<String, TypeIndex> transactionByTypeMap = new ConcurrentHashMap<>();
+  private volatile boolean offHeapIndexes;
+  private final AtomicLong sequence = new AtomicLong();
+  private volatile WriteAheadLog writeAheadLog;
+  private volatile HolderMetrics metrics = HolderMetrics.NOOP;
+  private volatile MutationListener mutationListener = MutationListener.NONE;
+  private volatile MutationListener invalidations = MutationListener.NONE;
+  private static final int MIN_SHARDS = 64;
+  private final TransactionShard[] shards;
+  private final ReadPins readPins = new ReadPins();
+  // ids of spilled descendants, each to the rollbacked transaction their subtree was spilled under
+  private final LongObjectConcurrentMap<Transaction> spilled = new LongObjectConcurrentMap<>();
+  private final Queue<SpillCandidate> spillCandidates = new ConcurrentLinkedQueue<>();
+  private volatile ColdSubtreeStore coldStore;
   private static final TransactionsHolder transactions = new TransactionsHolder();
 
   public static TransactionsHolder get() {
     return transactions;
   }
 
-  private TransactionsHolder() {
+  TransactionsHolder() {
+    this(Math.max(MIN_SHARDS, Runtime.getRuntime().availableProcessors() * 4));
+  }
+
+  TransactionsHolder(int shardCount) {
+    this.shards = new TransactionShard[Integer.highestOneBit(Math.max(1, shardCount - 1)) << 1];
+    for (int i = 0; i < shards.length; i++) {
+      shards[i] = new TransactionShard();
+    }
   }
 
   public TransactionSerializerResponse addTransaction(long id, TransactionSerializerRequest transactionSerializerRequest) {
-    Transaction transaction =
-        new Transaction(id, transactionSerializerRequest.getAmount(), transactionSerializerRequest.getType(),
-                        transactionSerializerRequest.getParentId());
-    addTransaction(transaction);
+    long start = metrics.start();
+    Transaction transaction;
+    Transaction stored;
+    try {
+      transaction =
+          new Transaction(id, transactionSerializerRequest.getAmount(), transactionSerializerRequest.getType(),
+                          transactionSerializerRequest.getParentId());
+      stored = find(id);
+      if (stored == null) {
+        stored = addUnlessRetried(transaction);
+      }
+    } catch (RuntimeException e) {
+      metrics.recordFailure(e);
+      metrics.recordOperation(Operation.ADD, start);
+      throw e;
+    }
+    if (stored != null) {
+      // a retry is recorded as a replay only, not as an add
+      return replay(stored, transaction);
+    }
+    metrics.recordOperation(Operation.ADD, start);
     return new TransactionSerializerResponse(transactionMap.get(id));
   }
 
+  // null once the transaction is stored, or the transaction a create retried while being stored left under its id
+  private Transaction addUnlessRetried(Transaction transaction) {
+    try {
+      addTransaction(transaction);
+      return null;
+    } catch (AlreadyCreatedTransactionException e) {
+      Transaction stored = find(transaction.getId());
+      if (stored == null) {
+        throw e;
+      }
+      return stored;
+    }
+  }
+
   private void addTransaction(Transaction transaction) {
-    runSynchronized(() -> {
-      if (transactionMap.containsKey(transaction.getId())) {
+    if (exists(transaction.getId())) {
+      throw new AlreadyCreatedTransactionException();
+    }
+
+    if (transaction.hasParent()) {
+      Transaction parent = find(transaction.getParentId());
+      if (parent == null) {
+        throw new TransactionNotFoundException("Parent id not found: " + transaction.getParentId());
+      }
+      transaction.setParent(parent);
+    }
+
+    long logPosition = runLocked(shardIndex(transaction.getRootId()), () -> insert(transaction));
+    awaitDurable(logPosition);
+  }
+
+  // a retried create answers with the transaction as it was stored, without a shard lock unless the original is still
+  // being stored; the same id with another payload is a conflict
+  TransactionSerializerResponse replay(Transaction stored, Transaction retried) {
+    long start = metrics.start();
+    try {
+      if (stored.getAmountCents() != retried.getAmountCents() || stored.getParentId() != retried.getParentId()
+          || !stored.getType().equals(retried.getType())) {
         throw new AlreadyCreatedTransactionException();
       }
+      if (stored.getCreatedSequence() > visibleSequence(stored)) {
+        // the original is still being stored, its shard lock is released once it is
+        runExclusive(shardIndex(stored.getRootId()), () -> {
+        });
+        if (transactionMap.get(stored.getId()) != stored) {
+          throw new AlreadyCreatedTransactionException();
+        }
+      }
+      if (writeAheadLog != null) {
+        writeAheadLog.awaitDurable(writeAheadLog.writtenBytes());
+      }
+      return new TransactionSerializerResponse(stored, stored.getCreatedSequence());
+    } catch (RuntimeException e) {
+      metrics.recordFailure(e);
+      throw e;
+    } finally {
+      metrics.recordOperation(Operation.REPLAY, start);
+    }
+  }
+
+  public RuntimeException[] addTransactions(List<TransactionBatchRequest> requests) {
+    long start = metrics.start();
+    int size = requests.size();
+    RuntimeException[] failures = new RuntimeException[size];
+    Transaction[] batch = new Transaction[size];
+    Map<Long, Integer> positions = new HashMap<>(size * 2);
+    for (int i = 0; i < size; i++) {
+      TransactionBatchRequest request = requests.get(i);
+      try {
+        batch[i] = new Transaction(request.getId(), request.getAmount(), request.getType(), request.getParentId());
+      } catch (RuntimeException e) {
+        failures[i] = e;
+        continue;
+      }
+      if (exists(request.getId()) || positions.putIfAbsent(request.getId(), i) != null) {
+        failures[i] = new AlreadyCreatedTransactionException();
+      }
+    }
 
-      Optional<Transaction> parent = transaction.getParentId().map(parentId -> {
-        if (!transactionMap.containsKey(parentId)) {
-          throw new TransactionNotFoundException("Parent id not found: " + parentId);
+    int[] order = parentsFirstOrder(batch, failures, positions);
+    insertAll(batch, order, failures);
+    metrics.recordOperation(Operation.BATCH_ADD, start);
+    return failures;
+  }
+
+  // commands of the ingest writer, applied in arrival order: a transaction can hang from one queued before it
+  RuntimeException[] addTransactionsInOrder(Transaction[] batch, int count) {
+    long start = metrics.start();
+    RuntimeException[] failures = new RuntimeException[count];
+    Map<Long, Transaction> queued = new HashMap<>(count * 2);
+    int[] order = new int[count];
+    for (int i = 0; i < count; i++) {
+      Transaction transaction = batch[i];
+      order[i] = i;
+      if (transaction.hasParent()) {
+        Transaction parent = find(transaction.getParentId());
+        if (parent == null) {
+          parent = queued.get(transaction.getParentId());
         }
-        Transaction parentTransaction = transactionMap.get(parentId);
-        if (!transactionMap.get(parentId).isActive()) {
-          throw new AlreadyRollbackedException();
+        if (parent == null) {
+          failures[i] = new TransactionNotFoundException("Parent id not found: " + transaction.getParentId());
+          continue;
         }
-        return  parentTransaction;
-      });
+        transaction.setParent(parent);
+      }
+      queued.putIfAbsent(transaction.getId(), transaction);
+    }
+    insertAll(batch, order, failures);
+    metrics.recordOperation(Operation.BATCH_ADD, start);
+    return failures;
+  }
 
-      transactionMap.put(transaction.getId(), transaction);
-      parent.ifPresent(p -> p.addChild(transaction));
+  public Optional<TransactionSerializerResponse> getTransaction(long id) {
+    return findVisibleTransaction(id)
+        .map(transaction -> new TransactionSerializerResponse(transaction, visibleSequence(transaction)));
+  }
 
-      if (!transactionByTypeMap.containsKey(transaction.getType())) {
-        transactionByTypeMap.put(transaction.getType(), synchronizedList(new LinkedList<>()));
-      }
+  public Optional<Transaction> findTransaction(long id) {
+    return Optional.ofNullable(find(id));
+  }
 
-      transactionByTypeMap.get(transaction.getType()).add(transaction.getId());
-    });
+  // the transaction once the write that stored it is over, whatever is still being written in other shards
+  public Optional<Transaction> findVisibleTransaction(long id) {
+    Transaction transaction = find(id);
+    if (transaction == null || transaction.getCreatedSequence() > visibleSequence(transaction)) {
+      return empty();
+    }
+    return of(transaction);
   }
 
-  public Optional<TransactionSerializerResponse> getTransaction(long id) {
-    if (!transactionMap.containsKey(id)) {
+  // the transaction if it was already stored at the sequence
+  public Optional<Transaction> findTransaction(long id, long sequence) {
+    Transaction transaction = find(id);
+    if (transaction == null || transaction.getCreatedSequence() > sequence) {
       return empty();
     }
-    return of(new TransactionSerializerResponse(transactionMap.get(id)));
+    return of(transaction);
   }
 
+  // the pin keeps writers from dropping the amount versions of the read sequence until the sum is read
   public BigDecimal getSum(long id) {
-    if (!transactionMap.containsKey(id)) {
-      throw new TransactionNotFoundException();
+    long start = metrics.start();
+    try {
+      Transaction transaction = find(id);
+      if (transaction == null) {
+        throw new TransactionNotFoundException();
+      }
+      int pin = readPins.pin(visibleSequence(transaction));
+      try {
+        long readSequence = visibleSequence(transaction);
+        if (transaction.getCreatedSequence() > readSequence) {
+          throw new TransactionNotFoundException();
+        }
+        recordTreeShape(Operation.SUM, transaction);
+        return transaction.isActiveAt(readSequence)
+            ? transaction.getSubtreeAmountAt(readSequence)
+            : ZERO;
+      } finally {
+        readPins.unpin(pin);
+      }
+    } catch (RuntimeException e) {
+      metrics.recordFailure(e);
+      throw e;
+    } finally {
+      metrics.recordOperation(Operation.SUM, start);
     }
-    return getSum(transactionMap.get(id));
   }
 
   public List<Long> getIdsByType(String type) {
-    return unmodifiableList(transactionByTypeMap.getOrDefault(type, emptyList()));
+    return getIdsByType(type, Transaction.NO_PARENT);
+  }
+
+  // ids of the type stored after the given one, as of the time of the call
+  public List<Long> getIdsByType(String type, long after) {
+    long start = metrics.start();
+    try {
+      TypeIndex index = transactionByTypeMap.get(type);
+      if (after == Transaction.NO_PARENT) {
+        return index == null ? emptyList() : index.between(0, visibleSequence());
+      }
+      Transaction cursor = find(after);
+      if (cursor == null || !cursor.getType().equals(type)) {
+        throw new TransactionNotFoundException("Cursor id not found for type " + type + ": " + after);
+      }
+      return index.between(cursor.getCreatedSequence(), visibleSequence());
+    } catch (RuntimeException e) {
+      metrics.recordFailure(e);
+      throw e;
+    } finally {
+      metrics.recordOperation(Operation.IDS_BY_TYPE, start);
+    }
+  }
+
+  // kept up to date on every add and rollback, so reading them costs nothing per transaction
+  public TypeTotalsSerializer getTypeTotals(String type) {
+    long start = metrics.start();
+    try {
+      TypeIndex index = transactionByTypeMap.get(type);
+      return index == null ? new TypeTotalsSerializer(type, 0, 0, ZERO) : typeTotals(type, index);
+    } finally {
+      metrics.recordOperation(Operation.TYPE_TOTALS, start);
+    }
+  }
+
+  public List<TypeTotalsSerializer> getTypeTotals() {
+    long start = metrics.start();
+    try {
+      List<TypeTotalsSerializer> totals = new ArrayList<>(transactionByTypeMap.size());
+      transactionByTypeMap.forEach((type, index) -> totals.add(typeTotals(type, index)));
+      totals.sort(Comparator.comparing(TypeTotalsSerializer::getType));
+      return totals;
+    } finally {
+      metrics.recordOperation(Operation.TYPE_TOTALS, start);
+    }
+  }
+
+  public long size() {
+    return transactionMap.size() + spilled.size();
+  }
+
+  public long spilledSize() {
+    return spilled.size();
+  }
+
+  public int typeCount() {
+    return transactionByTypeMap.size();
+  }
+
+  public long indexedIds() {
+    long indexed = 0;
+    for (TypeIndex index : transactionByTypeMap.values()) {
+      indexed += index.size();
+    }
+    return indexed;
+  }
+
+  public void useMetrics(HolderMetrics metrics) {
+    this.metrics = metrics;
+  }
+
+  public void useOffHeapIndexes(boolean offHeapIndexes) {
+    this.offHeapIndexes = offHeapIndexes;
+  }
+
+  // rollbacks from then on are spilled by spillColdSubtrees
+  public void useColdStore(ColdSubtreeStore coldStore) {
+    this.coldStore = coldStore;
   }
 
   public TransactionSerializerResponse rollbackTransaction(long id) {
-    if (!transactionMap.containsKey(id)) {
-      throw new TransactionNotFoundException();
+    return new TransactionSerializerResponse(rollback(id));
+  }
+
+  // the rollbacked transaction, for callers that answer without the subtree
+  public Transaction rollback(long id) {
+    long start = metrics.start();
+    try {
+      Transaction transaction = find(id);
+      if (transaction == null) {
+        throw new TransactionNotFoundException();
+      }
+      recordTreeShape(Operation.ROLLBACK, transaction);
+
+      long logPosition = runLocked(shardIndex(transaction.getRootId()), () -> {
+        if (!transaction.isActive()) {
+          throw new AlreadyRollbackedException();
+        }
+        long rollbackSequence = sequence.incrementAndGet();
+        long position = writeAheadLog == null ? 0 : writeAheadLog.appendRollback(rollbackSequence, id);
+        // marking the transaction is enough for its whole subtree, only its ancestors have totals to update
+        transaction.rollback(rollbackSequence);
+        propagateSubtreeAmount(transaction.getParent(), -transaction.getSubtreeAmountCents(),
+            transaction.getSubtreeAmountScale(), rollbackSequence);
+        mutationListener.onRollback(transaction);
+        invalidations.onRollback(transaction);
+        return position;
+      });
+      // nothing can be added or rollbacked under the transaction anymore, so its subtree is walked off the lock
+      excludeFromTypeTotals(transaction);
+      if (coldStore != null) {
+        spillCandidates.add(new SpillCandidate(transaction, System.nanoTime()));
+      }
+      awaitDurable(logPosition);
+      return transaction;
+    } catch (RuntimeException e) {
+      metrics.recordFailure(e);
+      throw e;
+    } finally {
+      metrics.recordOperation(Operation.ROLLBACK, start);
     }
-    Transaction transaction = transactionMap.get(id);
+  }
 
-    runSynchronized(() -> {
-      if (!transaction.isActive()) {
-        throw new AlreadyRollbackedException();
+  // moves the descendants of the transactions rollbacked at least minAgeMillis ago to the cold store, once no sum is
+  // still read from before their rollback; returns how many were moved
+  public long spillColdSubtrees(long minAgeMillis) throws IOException {
+    long start = metrics.start();
+    long spilledBefore = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(minAgeMillis);
+    long oldestRead = readPins.oldestPinned(visibleSequence());
+    long moved = 0;
+    // candidates are queued in rollback order, the first one too recent ends the run
+    for (SpillCandidate candidate = spillCandidates.peek();
+         candidate != null && candidate.rollbackedAt - spilledBefore <= 0
+             && candidate.transaction.getRollbackSequence() <= oldestRead;
+         candidate = spillCandidates.peek()) {
+      moved += spill(candidate.transaction);
+      spillCandidates.poll();
+    }
+    metrics.recordOperation(Operation.SPILL, start);
+    return moved;
+  }
+
+  public void recover(WriteAheadLog writeAheadLog) {
+    recover(null, writeAheadLog);
+  }
+
+  public void recover(SnapshotStore snapshotStore, WriteAheadLog writeAheadLog) {
+    try {
+      sequence.accumulateAndGet(new TransactionsRecovery(this).recover(snapshotStore, writeAheadLog), Math::max);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    this.writeAheadLog = writeAheadLog;
+  }
+
+  public Path snapshot(SnapshotStore snapshotStore) throws IOException {
+    long start = metrics.start();
+    long[] snapshotSequence = new long[1];
+    long[] logBoundary = new long[1];
+    Map<String, TypeIndex> typeIndexes = new HashMap<>();
+    // every mutation takes its sequence under its shard lock, so holding all of them splits the history at one sequence
+    runWithAllShardLocks(() -> {
+      snapshotSequence[0] = sequence.get();
+      typeIndexes.putAll(transactionByTypeMap);
+      logBoundary[0] = writeAheadLog == null ? 0 : writeAheadLog.rollOnNextAppend();
+    });
+
+    long visibleSequence = snapshotSequence[0];
+    Path snapshot = snapshotStore.write(visibleSequence, typeIndexes.keySet(), writer -> {
+      transactionMap.forEachValue(transaction -> {
+        if (!transaction.hasParent() && transaction.getCreatedSequence() <= visibleSequence) {
+          writer.transaction(transaction, visibleSequence);
+          TransactionTraversal.get().visitDescendants(transaction, writer, (child, parentWriter) -> {
+            if (child.getCreatedSequence() <= visibleSequence) {
+              parentWriter.transaction(child, visibleSequence);
+            }
+            return parentWriter;
+          });
+        }
+      });
+      writer.endTransactions();
+      typeIndexes.forEach((type, index) -> writer.typeIndex(type, index.between(0, visibleSequence)));
+    });
+
+    if (writeAheadLog != null) {
+      writeAheadLog.deleteSegmentsBefore(logBoundary[0]);
+    }
+    snapshotStore.deleteOlderThan(snapshot);
+    metrics.recordOperation(Operation.SNAPSHOT, start);
+    return snapshot;
+  }
+
+  // told of every mutation after the returned sequence, the earlier ones can be replayed from the stored state
+  public long listenToMutations(MutationListener listener) {
+    long[] listenedAfter = new long[1];
+    runWithAllShardLocks(() -> {
+      listenedAfter[0] = sequence.get();
+      mutationListener = listener;
+    });
+    return listenedAfter[0];
+  }
+
+  // replays the adds and rollbacks stored after a sequence in the order they happened, up to the returned sequence;
+  // all shards are locked meanwhile so a listener registered before sees every later mutation and nothing twice
+  public long replayMutations(long after, MutationListener listener) {
+    long[] replayedUpTo = new long[1];
+    runWithAllShardLocks(() -> {
+      List<Transaction> added = new ArrayList<>();
+      List<Transaction> rollbacked = new ArrayList<>();
+      transactionMap.forEachValue(transaction -> {
+        collectReplayed(transaction, after, added, rollbacked);
+        if (transaction.isSpilled()) {
+          TransactionTraversal.get().visitDescendants(transaction, added, (descendant, list) -> {
+            collectReplayed(descendant, after, list, rollbacked);
+            return list;
+          });
+        }
+      });
+      added.sort(Comparator.comparingLong(Transaction::getCreatedSequence));
+      rollbacked.sort(Comparator.comparingLong(Transaction::getRollbackSequence));
+      int nextRollback = 0;
+      for (Transaction transaction : added) {
+        while (nextRollback < rollbacked.size()
+            && rollbacked.get(nextRollback).getRollbackSequence() < transaction.getCreatedSequence()) {
+          listener.onRollback(rollbacked.get(nextRollback++));
+        }
+        listener.onAdd(transaction);
       }
-      rollbackTransactionsChilds(transaction);
+      rollbacked.subList(nextRollback, rollbacked.size()).forEach(listener::onRollback);
+      replayedUpTo[0] = sequence.get();
     });
-    return new TransactionSerializerResponse(transaction);
+    return replayedUpTo[0];
+  }
+
+  private static void collectReplayed(Transaction transaction, long after, List<Transaction> added,
+                                      List<Transaction> rollbacked) {
+    if (transaction.getCreatedSequence() > after) {
+      added.add(transaction);
+    }
+    // snapshots written before rollbacks only marked their topmost transaction still carry the marks of descendants
+    if (transaction.isRollbackRoot() && transaction.getRollbackSequence() > after
+        && wasActiveAt(transaction.getParent(), transaction.getRollbackSequence())) {
+      rollbacked.add(transaction);
+    }
+  }
+
+  public void stopListeningToMutations() {
+    mutationListener = MutationListener.NONE;
+  }
+
+  // told of every mutation from then on, without the replay of the stored state
+  public void invalidateOnMutations(MutationListener listener) {
+    invalidations = listener;
+  }
+
+  LongObjectConcurrentMap<Transaction> transactions() {
+    return transactionMap;
+  }
+
+  // the transaction, read back through the rollbacked transaction it was spilled under if it is not in the heap
+  Transaction find(long id) {
+    Transaction transaction = transactionMap.get(id);
+    if (transaction != null) {
+      return transaction;
+    }
+    Transaction spilledUnder = spilled.get(id);
+    if (spilledUnder == null) {
+      return null;
+    }
+    Deque<Transaction> pending = new ArrayDeque<>();
+    pending.push(spilledUnder);
+    while (!pending.isEmpty()) {
+      Transaction node = pending.pop();
+      for (int i = 0; i < node.getChildCount(); i++) {
+        Transaction child = node.getChild(i);
+        if (child.getId() == id) {
+          return child;
+        }
+        pending.push(child);
+      }
+    }
+    return null;
+  }
+
+  private boolean exists(long id) {
+    return transactionMap.containsKey(id) || spilled.containsKey(id);
+  }
+
+  // callers hold the shard lock of the transaction, or are the only writer of its type while recovering
+  void indexType(Transaction transaction) {
+    transactionByTypeMap.computeIfAbsent(transaction.getType(), key -> new TypeIndex(shards.length, offHeapIndexes))
+        .append(shardIndex(transaction.getRootId()), transaction);
+  }
+
+  // the transactions a rollback of this one deactivated, the ones under an earlier rollback were already left out
+  void excludeFromTypeTotals(Transaction rollbacked) {
+    TransactionTraversal.get().visitActive(rollbacked, transaction -> transactionByTypeMap.get(transaction.getType())
+        .deactivate(transaction));
   }
 
-  //just for testing
+  //just for testing, and for a follower starting over
   public void clearTransactionMap() {
     transactionMap.clear();
     transactionByTypeMap.clear();
+    spilled.clear();
+    spillCandidates.clear();
   }
 
-  private BigDecimal getSum(Transaction transaction) {
-    AtomicReference<BigDecimal> currentAmount = new AtomicReference<>(new BigDecimal(0));
-    runSynchronized(() -> {
-      if (!transaction.isActive()) {
-        return;
+  // the subtree is frozen since the rollback, only taking it out of the map is done under the lock of the tree so
+  // snapshots and replication replays see it either in the heap or spilled
+  private long spill(Transaction rollbacked) throws IOException {
+    if (transactionMap.get(rollbacked.getId()) != rollbacked || rollbacked.getChildCount() == 0) {
+      // spilled with a subtree it belongs to, or nothing to spill
+      return 0;
+    }
+    List<Transaction> descendants = new ArrayList<>();
+    TransactionTraversal.get().visitDescendants(rollbacked, descendants, (descendant, list) -> {
+      list.add(descendant);
+      return list;
+    });
+    SpilledChilds childs = coldStore.write(descendants);
+    runExclusive(shardIndex(rollbacked.getRootId()), () -> {
+      for (Transaction descendant : descendants) {
+        spilled.put(descendant.getId(), rollbacked);
+        transactionMap.remove(descendant.getId());
       }
-      transaction.getChilds().forEach(child -> currentAmount.set(currentAmount.get().add(getSum(child))));
-      currentAmount.set(currentAmount.get().add(transaction.getAmount()));
+      rollbacked.spillChilds(childs);
     });
-    return currentAmount.get();
+    return descendants.size();
   }
 
-  private List<Transaction> rollbackTransactionsChilds(Transaction transaction) {
-    List<Transaction> transactionsRollbacked = new LinkedList<>();
-    try {
-      transaction.getChilds().forEach(child -> {
-        if (child.isActive()) {
-          transactionsRollbacked.addAll(rollbackTransactionsChilds(child));
+  private static TypeTotalsSerializer typeTotals(String type, TypeIndex index) {
+    return new TypeTotalsSerializer(type, index.size(), index.activeCount(), Amounts.fromCents(index.activeCents()));
+  }
+
+  private static boolean wasActiveAt(Transaction transaction, long sequence) {
+    return transaction == null || transaction.isActiveAt(sequence);
+  }
+
+  // one round of shard locks and one durability wait for the whole batch
+  private void insertAll(Transaction[] batch, int[] order, RuntimeException[] failures) {
+    int[] shardIndexes = new int[order.length];
+    int lockedCount = 0;
+    for (int position : order) {
+      if (failures[position] == null) {
+        shardIndexes[lockedCount++] = shardIndex(batch[position].getRootId());
+      }
+    }
+    long[] logPosition = new long[1];
+    runWithShardLocks(IntStream.of(shardIndexes).limit(lockedCount).sorted().distinct().toArray(), () -> {
+      for (int position : order) {
+        if (failures[position] != null) {
+          continue;
         }
-      });
-      transactionsRollbacked.add(transaction);
-      transaction.rollback();
-    } catch (Exception e) {
-      transactionsRollbacked.forEach(Transaction::setActive);
+        Transaction transaction = batch[position];
+        Transaction parent = transaction.getParent();
+        try {
+          // a parent read back from the cold store is not in the map, insert answers that it was rollbacked
+          if (parent != null && transactionMap.get(parent.getId()) != parent && !spilled.containsKey(parent.getId())) {
+            throw new TransactionNotFoundException("Parent id not found: " + parent.getId());
+          }
+          logPosition[0] = Math.max(logPosition[0], insert(transaction));
+        } catch (RuntimeException e) {
+          failures[position] = e;
+        }
+      }
+    });
+    awaitDurable(logPosition[0]);
+    for (RuntimeException failure : failures) {
+      if (failure != null) {
+        metrics.recordFailure(failure);
+      }
+    }
+  }
+
+  private long insert(Transaction transaction) {
+    Transaction parent = transaction.getParent();
+    if (parent != null) {
+      if (!parent.isActive()) {
+        throw new AlreadyRollbackedException();
+      }
+      // the root keeps the largest total of the tree, so it bounds every ancestor update
+      Amounts.add(transactionMap.get(transaction.getRootId()).getSubtreeAmountCents(), transaction.getAmountCents());
+    }
+
+    transaction.setCreatedSequence(sequence.incrementAndGet());
+    if (transactionMap.putIfAbsent(transaction.getId(), transaction) != null) {
+      throw new AlreadyCreatedTransactionException();
+    }
+    // a spill indexes an id before taking it out of the map, so one of the two always has it
+    if (spilled.containsKey(transaction.getId())) {
+      transactionMap.remove(transaction.getId());
+      throw new AlreadyCreatedTransactionException();
+    }
+    long position;
+    try {
+      position = writeAheadLog == null ? 0 : writeAheadLog.appendAdd(transaction.getCreatedSequence(), transaction);
+    } catch (RuntimeException e) {
+      transactionMap.remove(transaction.getId());
       throw e;
     }
-    return transactionsRollbacked;
+
+    if (parent != null) {
+      parent.addChild(transaction);
+      propagateSubtreeAmount(parent, transaction.getAmountCents(), transaction.getAmountScale(),
+          transaction.getCreatedSequence());
+    }
+    indexType(transaction);
+    mutationListener.onAdd(transaction);
+    invalidations.onAdd(transaction);
+    return position;
+  }
+
+  // breadth first from the transactions whose parent is already stored, so every parent in the batch goes first
+  private int[] parentsFirstOrder(Transaction[] batch, RuntimeException[] failures, Map<Long, Integer> positions) {
+    int[] firstChild = new int[batch.length];
+    int[] nextSibling = new int[batch.length];
+    Arrays.fill(firstChild, -1);
+    int[] order = new int[batch.length];
+    int ordered = 0;
+    for (int i = 0; i < batch.length; i++) {
+      Transaction transaction = batch[i];
+      if (failures[i] != null || !transaction.hasParent()) {
+        if (failures[i] == null) {
+          order[ordered++] = i;
+        }
+        continue;
+      }
+      Integer parentPosition = positions.get(transaction.getParentId());
+      if (parentPosition != null) {
+        nextSibling[i] = firstChild[parentPosition];
+        firstChild[parentPosition] = i;
+        continue;
+      }
+      Transaction parent = find(transaction.getParentId());
+      if (parent == null) {
+        failures[i] = new TransactionNotFoundException("Parent id not found: " + transaction.getParentId());
+      } else {
+        transaction.setParent(parent);
+        order[ordered++] = i;
+      }
+    }
+    for (int next = 0; next < ordered; next++) {
+      Transaction parent = batch[order[next]];
+      for (int child = firstChild[order[next]]; child != -1; child = nextSibling[child]) {
+        batch[child].setParent(parent);
+        order[ordered++] = child;
+      }
+    }
+    // whatever was not reached hangs from a failed transaction or from a cycle inside the batch
+    boolean[] reached = new boolean[batch.length];
+    for (int i = 0; i < ordered; i++) {
+      reached[order[i]] = true;
+    }
+    for (int i = 0; i < batch.length; i++) {
+      if (failures[i] == null && !reached[i]) {
+        failures[i] = new TransactionNotFoundException("Parent id not found: " + batch[i].getParentId());
+      }
+    }
+    return Arrays.copyOf(order, ordered);
+  }
+
+  // the depth walk is only paid for when metrics are enabled
+  private void recordTreeShape(Operation operation, Transaction transaction) {
+    if (metrics.isEnabled()) {
+      int depth = 0;
+      for (Transaction ancestor = transaction.getParent(); ancestor != null; ancestor = ancestor.getParent()) {
+        depth++;
+      }
+      metrics.recordTreeShape(operation, depth, transaction.getChildCount());
+    }
+  }
+
+  private void propagateSubtreeAmount(Transaction ancestor, long delta, int scale, long sequence) {
+    if (ancestor == null) {
+      return;
+    }
+    long oldestRead = readPins.oldestPinned(visibleSequence(ancestor));
+    for (Transaction current = ancestor; current != null; current = current.getParent()) {
+      current.addToSubtreeAmount(delta, scale, sequence, oldestRead);
+    }
   }
 
-  private void runSynchronized(Runnable runnable) {
-    synchronized (TransactionsHolder.class) {
-      runnable.run();
+  private void awaitDurable(long logPosition) {
+    if (writeAheadLog != null) {
+      writeAheadLog.awaitDurable(logPosition);
+    }
+  }
+
+  // the latest sequence handed out, its write may still be in progress
+  public long lastSequence() {
+    return sequence.get();
+  }
+
+  // no write still in progress in any shard holds a sequence at or below this one, so reads at it see every
+  // mutation either whole or not at all
+  public long visibleSequence() {
+    long visible = sequence.get();
+    for (TransactionShard shard : shards) {
+      visible = Math.min(visible, shard.pendingSequence() - 1);
+    }
+    return visible;
+  }
+
+  // the same for the tree of the transaction only: a write held up in another shard does not hide what this tree
+  // stored since, so an add is readable as soon as it returns
+  public long visibleSequence(Transaction transaction) {
+    return visibleSequence(shardIndex(transaction.getRootId()));
+  }
+
+  private long visibleSequence(int shardIndex) {
+    return Math.min(sequence.get(), shards[shardIndex].pendingSequence() - 1);
+  }
+
+  private void runWithAllShardLocks(Runnable action) {
+    runWithShardLocks(IntStream.range(0, shards.length).toArray(), action);
+  }
+
+  // shards must be sorted, taking them in index order keeps concurrent batches and snapshots from deadlocking
+  private void runWithShardLocks(int[] shardIndexes, Runnable action) {
+    long requested = metrics.start();
+    int locked = 0;
+    try {
+      for (; locked < shardIndexes.length; locked++) {
+        shards[shardIndexes[locked]].lock();
+        shards[shardIndexes[locked]].markPending(sequence.get() + 1);
+      }
+      long acquired = metrics.start();
+      try {
+        action.run();
+      } finally {
+        metrics.recordLock(requested, acquired);
+      }
+    } finally {
+      while (locked > 0) {
+        shards[shardIndexes[--locked]].unlock();
+      }
+    }
+  }
+
+  private long runLocked(int shardIndex, LongSupplier action) {
+    long requested = metrics.start();
+    TransactionShard shard = shards[shardIndex];
+    shard.lock();
+    shard.markPending(sequence.get() + 1);
+    try {
+      long acquired = metrics.start();
+      try {
+        return action.getAsLong();
+      } finally {
+        metrics.recordLock(requested, acquired);
+      }
+    } finally {
+      shard.unlock();
+    }
+  }
+
+  // for work that takes no sequence, so the readers are not held back meanwhile
+  private void runExclusive(int shardIndex, Runnable action) {
+    TransactionShard shard = shards[shardIndex];
+    shard.lock();
+    try {
+      action.run();
+    } finally {
+      shard.unlock();
+    }
+  }
+
+  int shardIndex(long rootId) {
+    long hash = rootId * 0x9E3779B97F4A7C15L;
+    return (int) (hash ^ (hash >>> 32)) & (shards.length - 1);
+  }
+
+  private static final class SpillCandidate {
+
+    private final Transaction transaction;
+    private final long rollbackedAt;
+
+    private SpillCandidate(Transaction transaction, long rollbackedAt) {
+      this.transaction = transaction;
+      this.rollbackedAt = rollbackedAt;
     }
   }
-}
\ No newline at end of file
+}
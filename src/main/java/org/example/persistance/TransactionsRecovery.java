@@ -0,0 +1,192 @@
+package org.example.persistance;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import org.example.model.Transaction;
+import org.example.model.TransactionTraversal;
+import org.example.persistance.snapshot.SnapshotHandler;
+import org.example.persistance.snapshot.SnapshotStore;
+import org.example.persistance.storage.LongObjectConcurrentMap;
+import org.example.persistance.wal.WalRecordHandler;
+import org.example.persistance.wal.WriteAheadLog;
+
+class TransactionsRecovery {
+
+  private final TransactionsHolder holder;
+  private final LongObjectConcurrentMap<Transaction> transactions;
+
+  TransactionsRecovery(TransactionsHolder holder) {
+    this.holder = holder;
+    this.transactions = holder.transactions();
+  }
+
+  long recover(SnapshotStore snapshotStore, WriteAheadLog writeAheadLog) throws IOException {
+    SnapshotLoad snapshot = new SnapshotLoad();
+    if (snapshotStore != null) {
+      snapshot.sequence = snapshotStore.load(snapshot).orElse(0);
+    }
+
+    List<SegmentReplay> segments = writeAheadLog == null ? List.of() : writeAheadLog.segments().parallelStream()
+        .map(segment -> load(writeAheadLog, segment, snapshot.sequence))
+        .collect(Collectors.toList());
+
+    int partitions = ForkJoinPool.getCommonPoolParallelism() * 2;
+    IntStream.range(0, partitions).parallel().forEach(partition -> link(segments, partition, partitions));
+    segments.parallelStream().forEach(this::rollback);
+
+    Stream.concat(Arrays.stream(snapshot.roots, 0, snapshot.rootCount),
+                  segments.stream().flatMap(segment -> Arrays.stream(segment.added, 0, segment.addedCount))
+                      .filter(transaction -> !transaction.hasParent()))
+        .parallel()
+        .forEach(root -> TransactionTraversal.get().restore(root));
+    // the shard of a type index entry depends on the root, only settled once the trees are restored
+    IntStream.range(0, partitions).parallel().forEach(partition -> indexTypes(segments, partition, partitions));
+    transactions.forEachValue(transaction -> {
+      if (transaction.isRollbackRoot()) {
+        holder.excludeFromTypeTotals(transaction);
+      }
+    });
+
+    return Math.max(snapshot.sequence, segments.stream().mapToLong(segment -> segment.maxSequence).max().orElse(0));
+  }
+
+  private SegmentReplay load(WriteAheadLog writeAheadLog, Path segment, long snapshotSequence) {
+    SegmentReplay replay = new SegmentReplay(snapshotSequence);
+    try {
+      writeAheadLog.read(segment, replay);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return replay;
+  }
+
+  // each partition owns a disjoint set of parents, so child order follows the log
+  private void link(List<SegmentReplay> segments, int partition, int partitions) {
+    for (SegmentReplay segment : segments) {
+      for (int i = 0; i < segment.addedCount; i++) {
+        Transaction transaction = segment.added[i];
+        if (transaction.hasParent() && Math.floorMod(Long.hashCode(transaction.getParentId()), partitions) == partition) {
+          attach(transaction);
+        }
+      }
+    }
+  }
+
+  // and a disjoint set of types here, so index order follows the log too
+  private void indexTypes(List<SegmentReplay> segments, int partition, int partitions) {
+    for (SegmentReplay segment : segments) {
+      for (int i = 0; i < segment.addedCount; i++) {
+        Transaction transaction = segment.added[i];
+        if (Math.floorMod(transaction.getType().hashCode(), partitions) == partition) {
+          holder.indexType(transaction);
+        }
+      }
+    }
+  }
+
+  private void rollback(SegmentReplay segment) {
+    for (int i = 0; i < segment.rollbackCount; i++) {
+      Transaction transaction = transactions.get(segment.rollbacks[i]);
+      if (transaction == null) {
+        throw new IllegalStateException("Rollbacked id not found in write ahead log: " + segment.rollbacks[i]);
+      }
+      transaction.rollback(segment.rollbackSequences[i]);
+    }
+  }
+
+  private void attach(Transaction transaction) {
+    Transaction parent = transactions.get(transaction.getParentId());
+    if (parent == null) {
+      throw new IllegalStateException("Parent id not found while recovering: " + transaction.getParentId());
+    }
+    transaction.setParent(parent);
+    parent.addChild(transaction);
+  }
+
+  private Transaction create(long id, long parentId, long amountCents, int amountScale, String type, long sequence) {
+    Transaction transaction = Transaction.restore(id, parentId, amountCents, amountScale, type);
+    transaction.setCreatedSequence(sequence);
+    if (transactions.putIfAbsent(id, transaction) != null) {
+      throw new IllegalStateException("Duplicated id while recovering: " + id);
+    }
+    return transaction;
+  }
+
+  private class SnapshotLoad implements SnapshotHandler {
+
+    private long sequence;
+    private Transaction[] roots = new Transaction[1024];
+    private int rootCount;
+
+    @Override
+    public void onTransaction(long id, long parentId, long amountCents, int amountScale, String type, long createdSequence,
+                              long rollbackSequence) {
+      Transaction transaction = create(id, parentId, amountCents, amountScale, type, createdSequence);
+      if (rollbackSequence != 0) {
+        transaction.rollback(rollbackSequence);
+      }
+      if (transaction.hasParent()) {
+        attach(transaction);
+      } else {
+        if (rootCount == roots.length) {
+          roots = Arrays.copyOf(roots, rootCount << 1);
+        }
+        roots[rootCount++] = transaction;
+      }
+    }
+
+    @Override
+    public void onTypeIndex(String type, long id) {
+      holder.indexType(transactions.get(id));
+    }
+  }
+
+  private class SegmentReplay implements WalRecordHandler {
+
+    private final long snapshotSequence;
+    private Transaction[] added = new Transaction[1024];
+    private int addedCount;
+    private long[] rollbacks = new long[16];
+    private long[] rollbackSequences = new long[16];
+    private int rollbackCount;
+    private long maxSequence;
+
+    private SegmentReplay(long snapshotSequence) {
+      this.snapshotSequence = snapshotSequence;
+    }
+
+    @Override
+    public void onAdd(long sequence, long id, long parentId, long amountCents, int amountScale, String type) {
+      if (sequence <= snapshotSequence) {
+        return;
+      }
+      if (addedCount == added.length) {
+        added = Arrays.copyOf(added, addedCount << 1);
+      }
+      added[addedCount++] = create(id, parentId, amountCents, amountScale, type, sequence);
+      maxSequence = Math.max(maxSequence, sequence);
+    }
+
+    @Override
+    public void onRollback(long sequence, long id) {
+      if (sequence <= snapshotSequence) {
+        return;
+      }
+      if (rollbackCount == rollbacks.length) {
+        rollbacks = Arrays.copyOf(rollbacks, rollbackCount << 1);
+        rollbackSequences = Arrays.copyOf(rollbackSequences, rollbackCount << 1);
+      }
+      rollbackSequences[rollbackCount] = sequence;
+      rollbacks[rollbackCount++] = id;
+      maxSequence = Math.max(maxSequence, sequence);
+    }
+  }
+}
@@ -0,0 +1,222 @@
+package org.example.persistance;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.example.model.Transaction;
+import org.example.persistance.storage.LongAppendIndex;
+
+// Ids of one type, one slice per shard so shards never share an append. Every slice also keeps the sequence each id
+// was stored at, which is increasing inside a slice and gives the order to merge the slices in.
+final class TypeIndex {
+
+  private final boolean offHeap;
+  private final AtomicReferenceArray<Slice> slices;
+  // striped, so the shards adding the type never contend on its totals
+  private final LongAdder activeCount = new LongAdder();
+  private final LongAdder activeCents = new LongAdder();
+
+  TypeIndex(int shards, boolean offHeap) {
+    this.offHeap = offHeap;
+    this.slices = new AtomicReferenceArray<>(shards);
+  }
+
+  // callers hold the lock of the shard
+  void append(int shard, Transaction transaction) {
+    Slice slice = slices.get(shard);
+    if (slice == null) {
+      slice = new Slice(offHeap);
+      slices.set(shard, slice);
+    }
+    slice.sequences.append(transaction.getCreatedSequence());
+    slice.ids.append(transaction.getId());
+    activeCount.increment();
+    activeCents.add(transaction.getAmountCents());
+  }
+
+  void deactivate(Transaction transaction) {
+    activeCount.decrement();
+    activeCents.add(-transaction.getAmountCents());
+  }
+
+  long activeCount() {
+    return activeCount.sum();
+  }
+
+  long activeCents() {
+    return activeCents.sum();
+  }
+
+  long size() {
+    long size = 0;
+    for (int shard = 0; shard < slices.length(); shard++) {
+      Slice slice = slices.get(shard);
+      if (slice != null) {
+        size += slice.ids.size();
+      }
+    }
+    return size;
+  }
+
+  // ids stored after the given sequence and up to the visible one, in the order they were stored. The cut is the same
+  // for every slice, so a page never ends past an add still held up in another shard and a cursor skips nothing.
+  List<Long> between(long afterSequence, long visibleSequence) {
+    List<Range> ranges = new ArrayList<>();
+    for (int shard = 0; shard < slices.length(); shard++) {
+      Slice slice = slices.get(shard);
+      if (slice == null) {
+        continue;
+      }
+      int to = slice.ids.size();
+      while (to > 0 && slice.sequences.get(to - 1) > visibleSequence) {
+        to--;
+      }
+      int from = slice.firstAfter(afterSequence, to);
+      if (from < to) {
+        ranges.add(new Range(slice, from, to));
+      }
+    }
+    if (ranges.size() == 1) {
+      Range range = ranges.get(0);
+      return range.slice.ids.asList(range.from).subList(0, range.to - range.from);
+    }
+    return new MergedList(ranges);
+  }
+
+  private static final class Slice {
+
+    private final LongAppendIndex ids;
+    private final LongAppendIndex sequences;
+
+    private Slice(boolean offHeap) {
+      this.ids = new LongAppendIndex(offHeap);
+      this.sequences = new LongAppendIndex(offHeap);
+    }
+
+    private int firstAfter(long sequence, int to) {
+      int low = 0;
+      int high = to;
+      while (low < high) {
+        int middle = (low + high) >>> 1;
+        if (sequences.get(middle) <= sequence) {
+          low = middle + 1;
+        } else {
+          high = middle;
+        }
+      }
+      return low;
+    }
+  }
+
+  private record Range(Slice slice, int from, int to) {
+  }
+
+  // walks the slices with a heap on the next sequence of each one; reading it in order costs one heap step per id
+  private static final class MergedList extends AbstractList<Long> {
+
+    private final Range[] ranges;
+    private final int size;
+    private final int[] next;
+    private final int[] heap;
+    private int heapSize;
+    private int position;
+    private long last;
+
+    private MergedList(List<Range> ranges) {
+      this.ranges = ranges.toArray(new Range[0]);
+      this.next = new int[this.ranges.length];
+      this.heap = new int[this.ranges.length];
+      int size = 0;
+      for (Range range : ranges) {
+        size += range.to - range.from;
+      }
+      this.size = size;
+      reset();
+    }
+
+    @Override
+    public Long get(int index) {
+      if (index < 0 || index >= size) {
+        throw new IndexOutOfBoundsException("Position " + index + " out of bounds for size " + size);
+      }
+      if (index == position - 1) {
+        return last;
+      }
+      if (index < position) {
+        reset();
+      }
+      while (position <= index) {
+        last = advance();
+      }
+      return last;
+    }
+
+    @Override
+    public int size() {
+      return size;
+    }
+
+    private void reset() {
+      heapSize = 0;
+      position = 0;
+      for (int range = 0; range < ranges.length; range++) {
+        next[range] = ranges[range].from;
+        heap[heapSize] = range;
+        siftUp(heapSize++);
+      }
+    }
+
+    private long advance() {
+      int range = heap[0];
+      long id = ranges[range].slice.ids.get(next[range]++);
+      if (next[range] == ranges[range].to) {
+        heap[0] = heap[--heapSize];
+      }
+      siftDown(0);
+      position++;
+      return id;
+    }
+
+    private long head(int range) {
+      return ranges[range].slice.sequences.get(next[range]);
+    }
+
+    private void siftUp(int slot) {
+      while (slot > 0) {
+        int parent = (slot - 1) >>> 1;
+        if (head(heap[parent]) <= head(heap[slot])) {
+          return;
+        }
+        swap(parent, slot);
+        slot = parent;
+      }
+    }
+
+    private void siftDown(int slot) {
+      while (true) {
+        int smallest = slot;
+        int left = slot * 2 + 1;
+        if (left < heapSize && head(heap[left]) < head(heap[smallest])) {
+          smallest = left;
+        }
+        if (left + 1 < heapSize && head(heap[left + 1]) < head(heap[smallest])) {
+          smallest = left + 1;
+        }
+        if (smallest == slot) {
+          return;
+        }
+        swap(slot, smallest);
+        slot = smallest;
+      }
+    }
+
+    private void swap(int first, int second) {
+      int swapped = heap[first];
+      heap[first] = heap[second];
+      heap[second] = swapped;
+    }
+  }
+}
@@ -0,0 +1,9 @@
+package org.example.persistance.snapshot;
+
+public interface SnapshotHandler {
+
+  void onTransaction(long id, long parentId, long amountCents, int amountScale, String type, long createdSequence,
+                     long rollbackSequence);
+
+  void onTypeIndex(String type, long id);
+}
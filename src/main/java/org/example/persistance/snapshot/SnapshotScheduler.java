@@ -0,0 +1,42 @@
+package org.example.persistance.snapshot;
+
+import java.io.Closeable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class SnapshotScheduler implements Closeable {
+
+  private static final Logger logger = LoggerFactory.getLogger(SnapshotScheduler.class);
+
+  private final ScheduledExecutorService executor;
+
+  public SnapshotScheduler(SnapshotTask task, long intervalMillis) {
+    this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "snapshot-writer");
+      thread.setDaemon(true);
+      return thread;
+    });
+    executor.scheduleWithFixedDelay(() -> {
+      try {
+        task.run();
+      } catch (Exception e) {
+        // a failed snapshot keeps the log untouched, the next one retries
+        logger.error("Snapshot failed", e);
+      }
+    }, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+  }
+
+  @Override
+  public void close() {
+    executor.shutdown();
+  }
+
+  public interface SnapshotTask {
+
+    void run() throws Exception;
+  }
+}
@@ -0,0 +1,111 @@
+package org.example.persistance.snapshot;
+
+import static java.nio.channels.FileChannel.MapMode.READ_ONLY;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+public class SnapshotStore {
+
+  static final int MAGIC = 0x54534e50;
+  static final int VERSION = 1;
+  static final long END_OF_TRANSACTIONS = 0;
+  static final int TRANSACTION_BYTES = Long.BYTES * 5 + 1 + Integer.BYTES;
+
+  private static final String SNAPSHOT_PREFIX = "snapshot-";
+  private static final String SNAPSHOT_SUFFIX = ".snap";
+
+  private final Path directory;
+
+  public SnapshotStore(Path directory) throws IOException {
+    this.directory = Files.createDirectories(directory);
+  }
+
+  public Path write(long sequence, Collection<String> types, Consumer<SnapshotWriter> content) throws IOException {
+    Path snapshot = directory.resolve(String.format("%s%020d%s", SNAPSHOT_PREFIX, sequence, SNAPSHOT_SUFFIX));
+    Path temporary = directory.resolve(snapshot.getFileName() + ".tmp");
+    try (FileChannel channel = FileChannel.open(temporary, CREATE, TRUNCATE_EXISTING, WRITE)) {
+      SnapshotWriter writer = new SnapshotWriter(channel);
+      writer.header(sequence, types);
+      content.accept(writer);
+      writer.flush();
+      channel.force(true);
+    }
+    Files.move(temporary, snapshot, ATOMIC_MOVE);
+    return snapshot;
+  }
+
+  public OptionalLong load(SnapshotHandler handler) throws IOException {
+    Optional<Path> latest = latest();
+    if (latest.isEmpty()) {
+      return OptionalLong.empty();
+    }
+    try (FileChannel channel = FileChannel.open(latest.get(), READ)) {
+      MappedByteBuffer buffer = channel.map(READ_ONLY, 0, channel.size());
+      if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+        throw new IllegalStateException("Invalid snapshot file: " + latest.get());
+      }
+      long sequence = buffer.getLong();
+      String[] types = new String[buffer.getInt()];
+      for (int i = 0; i < types.length; i++) {
+        byte[] bytes = new byte[buffer.getShort()];
+        buffer.get(bytes);
+        types[i] = new String(bytes, UTF_8).intern();
+      }
+      for (long id = buffer.getLong(); id != END_OF_TRANSACTIONS; id = buffer.getLong()) {
+        handler.onTransaction(id, buffer.getLong(), buffer.getLong(), buffer.get(), types[buffer.getInt()], buffer.getLong(),
+                              buffer.getLong());
+      }
+      while (buffer.hasRemaining()) {
+        String type = types[buffer.getInt()];
+        for (int count = buffer.getInt(); count > 0; count--) {
+          handler.onTypeIndex(type, buffer.getLong());
+        }
+      }
+      return OptionalLong.of(sequence);
+    }
+  }
+
+  public void deleteOlderThan(Path snapshot) throws IOException {
+    for (Path older : snapshots()) {
+      if (sequenceOf(older) < sequenceOf(snapshot)) {
+        Files.deleteIfExists(older);
+      }
+    }
+  }
+
+  private Optional<Path> latest() throws IOException {
+    List<Path> snapshots = snapshots();
+    return snapshots.isEmpty() ? Optional.empty() : Optional.of(snapshots.get(snapshots.size() - 1));
+  }
+
+  private List<Path> snapshots() throws IOException {
+    try (Stream<Path> files = Files.list(directory)) {
+      return files.filter(path -> path.getFileName().toString().startsWith(SNAPSHOT_PREFIX)
+                                  && path.getFileName().toString().endsWith(SNAPSHOT_SUFFIX))
+          .sorted((first, second) -> Long.compare(sequenceOf(first), sequenceOf(second)))
+          .collect(Collectors.toList());
+    }
+  }
+
+  private static long sequenceOf(Path snapshot) {
+    String name = snapshot.getFileName().toString();
+    return Long.parseLong(name.substring(SNAPSHOT_PREFIX.length(), name.length() - SNAPSHOT_SUFFIX.length()));
+  }
+}
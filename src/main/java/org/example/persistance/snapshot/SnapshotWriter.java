@@ -0,0 +1,80 @@
+package org.example.persistance.snapshot;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.example.model.Transaction;
+
+public class SnapshotWriter {
+
+  private static final int BUFFER_SIZE = 1 << 20;
+
+  private final FileChannel channel;
+  private final Map<String, Integer> typeOrdinals = new HashMap<>();
+  private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+  SnapshotWriter(FileChannel channel) {
+    this.channel = channel;
+  }
+
+  void header(long sequence, Collection<String> types) {
+    buffer.putInt(SnapshotStore.MAGIC).putInt(SnapshotStore.VERSION).putLong(sequence).putInt(types.size());
+    for (String type : types) {
+      byte[] bytes = type.getBytes(UTF_8);
+      typeOrdinals.put(type, typeOrdinals.size());
+      ensure(Short.BYTES + bytes.length);
+      buffer.putShort((short) bytes.length).put(bytes);
+    }
+  }
+
+  public void transaction(Transaction transaction, long visibleSequence) {
+    ensure(SnapshotStore.TRANSACTION_BYTES);
+    buffer.putLong(transaction.getId())
+        .putLong(transaction.getParentId())
+        .putLong(transaction.getAmountCents())
+        .put(transaction.getAmountScale())
+        .putInt(typeOrdinals.get(transaction.getType()))
+        .putLong(transaction.getCreatedSequence())
+        .putLong(transaction.isRollbackRootAt(visibleSequence) ? transaction.getRollbackSequence() : 0);
+  }
+
+  public void endTransactions() {
+    ensure(Long.BYTES);
+    buffer.putLong(SnapshotStore.END_OF_TRANSACTIONS);
+  }
+
+  public void typeIndex(String type, List<Long> ids) {
+    ensure(Integer.BYTES * 2);
+    buffer.putInt(typeOrdinals.get(type)).putInt(ids.size());
+    for (long id : ids) {
+      ensure(Long.BYTES);
+      buffer.putLong(id);
+    }
+  }
+
+  void flush() throws IOException {
+    buffer.flip();
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+    buffer.clear();
+  }
+
+  private void ensure(int bytes) {
+    if (buffer.remaining() < bytes) {
+      try {
+        flush();
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+  }
+}
@@ -0,0 +1,140 @@
+package org.example.persistance.storage;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+// Appends come from one writer at a time, the type index appends under the shard lock of the slice and recovery
+// gives each index a single thread; readers run concurrently and see a value once size covers it.
+public class LongAppendIndex {
+
+  private static final int FIRST_CHUNK_BITS = 4;
+  private static final int MAX_CHUNK_BITS = 16;
+
+  private final boolean offHeap;
+  private volatile Object[] chunks = new Object[4];
+  private volatile int size;
+
+  public LongAppendIndex() {
+    this(false);
+  }
+
+  public LongAppendIndex(boolean offHeap) {
+    this.offHeap = offHeap;
+  }
+
+  public int append(long value) {
+    int position = size;
+    int chunk = chunkOf(position);
+    Object[] current = chunks;
+    if (chunk == current.length || current[chunk] == null) {
+      current = ensureChunk(current, chunk);
+    }
+    write(current[chunk], offsetOf(position, chunk), value);
+    size = position + 1;
+    return position;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public long get(int position) {
+    if (position < 0 || position >= size) {
+      throw new IndexOutOfBoundsException("Position " + position + " out of bounds for size " + size);
+    }
+    int chunk = chunkOf(position);
+    return read(chunks[chunk], offsetOf(position, chunk));
+  }
+
+  public List<Long> asList(int from) {
+    int to = size;
+    if (from < 0 || from > to) {
+      throw new IndexOutOfBoundsException("Position " + from + " out of bounds for size " + to);
+    }
+    return new SnapshotList(this, from, to);
+  }
+
+  private Object[] ensureChunk(Object[] current, int chunk) {
+    Object[] resized = current;
+    if (chunk == current.length) {
+      resized = new Object[current.length << 1];
+      System.arraycopy(current, 0, resized, 0, current.length);
+    }
+    int length = chunkLength(chunk);
+    resized[chunk] = offHeap
+        ? ByteBuffer.allocateDirect(length * Long.BYTES).order(ByteOrder.nativeOrder())
+        : new long[length];
+    chunks = resized;
+    return resized;
+  }
+
+  private static long read(Object storage, int offset) {
+    if (storage instanceof long[] values) {
+      return values[offset];
+    }
+    return ((ByteBuffer) storage).getLong(offset * Long.BYTES);
+  }
+
+  private static void write(Object storage, int offset, long value) {
+    if (storage instanceof long[] values) {
+      values[offset] = value;
+    } else {
+      ((ByteBuffer) storage).putLong(offset * Long.BYTES, value);
+    }
+  }
+
+  // chunk 0 holds 2^FIRST_CHUNK_BITS values, every next chunk doubles until MAX_CHUNK_BITS
+  private static int chunkOf(int position) {
+    int doubling = 31 - Integer.numberOfLeadingZeros((position >>> FIRST_CHUNK_BITS) + 1);
+    int maxDoubling = MAX_CHUNK_BITS - FIRST_CHUNK_BITS;
+    if (doubling < maxDoubling) {
+      return doubling;
+    }
+    return maxDoubling + ((position - chunkStart(maxDoubling)) >>> MAX_CHUNK_BITS);
+  }
+
+  private static int chunkStart(int chunk) {
+    int maxDoubling = MAX_CHUNK_BITS - FIRST_CHUNK_BITS;
+    if (chunk <= maxDoubling) {
+      return ((1 << chunk) - 1) << FIRST_CHUNK_BITS;
+    }
+    return chunkStart(maxDoubling) + ((chunk - maxDoubling) << MAX_CHUNK_BITS);
+  }
+
+  private static int chunkLength(int chunk) {
+    return 1 << Math.min(FIRST_CHUNK_BITS + chunk, MAX_CHUNK_BITS);
+  }
+
+  private static int offsetOf(int position, int chunk) {
+    return position - chunkStart(chunk);
+  }
+
+  private static final class SnapshotList extends AbstractList<Long> implements RandomAccess {
+
+    private final LongAppendIndex index;
+    private final int from;
+    private final int size;
+
+    private SnapshotList(LongAppendIndex index, int from, int to) {
+      this.index = index;
+      this.from = from;
+      this.size = to - from;
+    }
+
+    @Override
+    public Long get(int position) {
+      if (position < 0 || position >= size) {
+        throw new IndexOutOfBoundsException("Position " + position + " out of bounds for size " + size);
+      }
+      return index.get(from + position);
+    }
+
+    @Override
+    public int size() {
+      return size;
+    }
+  }
+}
@@ -0,0 +1,247 @@
+package org.example.persistance.storage;
+
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
+
+public class LongObjectConcurrentMap<V> {
+
+  private static final int DEFAULT_SEGMENTS = 64;
+  private static final int MIN_SEGMENT_CAPACITY = 16;
+  private static final float LOAD_FACTOR = 0.75f;
+
+  private final Segment<V>[] segments;
+  private final int segmentShift;
+
+  public LongObjectConcurrentMap() {
+    this(DEFAULT_SEGMENTS);
+  }
+
+  @SuppressWarnings("unchecked")
+  public LongObjectConcurrentMap(int concurrencyLevel) {
+    int segmentCount = Integer.highestOneBit(Math.max(1, concurrencyLevel - 1)) << 1;
+    this.segments = new Segment[segmentCount];
+    this.segmentShift = 64 - Integer.numberOfTrailingZeros(segmentCount);
+    for (int i = 0; i < segmentCount; i++) {
+      segments[i] = new Segment<>();
+    }
+  }
+
+  public V get(long key) {
+    long hash = hash(key);
+    return segmentFor(hash).get(key, (int) hash);
+  }
+
+  public boolean containsKey(long key) {
+    return get(key) != null;
+  }
+
+  public V putIfAbsent(long key, V value) {
+    long hash = hash(key);
+    return segmentFor(hash).put(key, (int) hash, value, true);
+  }
+
+  public V put(long key, V value) {
+    long hash = hash(key);
+    return segmentFor(hash).put(key, (int) hash, value, false);
+  }
+
+  public V remove(long key) {
+    long hash = hash(key);
+    return segmentFor(hash).remove(key, (int) hash);
+  }
+
+  public long size() {
+    long size = 0;
+    for (Segment<V> segment : segments) {
+      size += segment.size;
+    }
+    return size;
+  }
+
+  public boolean isEmpty() {
+    return size() == 0;
+  }
+
+  public void clear() {
+    for (Segment<V> segment : segments) {
+      segment.clear();
+    }
+  }
+
+  public void forEachValue(Consumer<? super V> action) {
+    for (Segment<V> segment : segments) {
+      segment.forEachValue(action);
+    }
+  }
+
+  private Segment<V> segmentFor(long hash) {
+    return segments.length == 1 ? segments[0] : segments[(int) (hash >>> segmentShift)];
+  }
+
+  private static long hash(long key) {
+    key ^= key >>> 33;
+    key *= 0xff51afd7ed558ccdL;
+    key ^= key >>> 33;
+    key *= 0xc4ceb9fe1a85ec53L;
+    return key ^ (key >>> 33);
+  }
+
+  private static final class Table {
+
+    private final long[] keys;
+    private final Object[] values;
+
+    private Table(int capacity) {
+      this.keys = new long[capacity];
+      this.values = new Object[capacity];
+    }
+  }
+
+  private static final class Segment<V> extends StampedLock {
+
+    private Table table = new Table(MIN_SEGMENT_CAPACITY);
+    private volatile int size;
+
+    private V get(long key, int hash) {
+      long stamp = tryOptimisticRead();
+      V value = find(table, key, hash);
+      if (!validate(stamp)) {
+        stamp = readLock();
+        try {
+          value = find(table, key, hash);
+        } finally {
+          unlockRead(stamp);
+        }
+      }
+      return value;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <V> V find(Table table, long key, int hash) {
+      long[] keys = table.keys;
+      Object[] values = table.values;
+      int mask = values.length - 1;
+      for (int probes = 0, slot = hash & mask; probes <= mask; probes++, slot = (slot + 1) & mask) {
+        Object value = values[slot];
+        if (value == null) {
+          return null;
+        }
+        if (keys[slot] == key) {
+          return (V) value;
+        }
+      }
+      return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private V put(long key, int hash, V value, boolean onlyIfAbsent) {
+      if (value == null) {
+        throw new NullPointerException();
+      }
+      long stamp = writeLock();
+      try {
+        Table current = table;
+        int mask = current.values.length - 1;
+        int slot = hash & mask;
+        while (current.values[slot] != null) {
+          if (current.keys[slot] == key) {
+            V previous = (V) current.values[slot];
+            if (!onlyIfAbsent) {
+              current.values[slot] = value;
+            }
+            return previous;
+          }
+          slot = (slot + 1) & mask;
+        }
+        current.keys[slot] = key;
+        current.values[slot] = value;
+        size++;
+        if (size > current.values.length * LOAD_FACTOR) {
+          table = resize(current);
+        }
+        return null;
+      } finally {
+        unlockWrite(stamp);
+      }
+    }
+
+    @SuppressWarnings("unchecked")
+    private V remove(long key, int hash) {
+      long stamp = writeLock();
+      try {
+        long[] keys = table.keys;
+        Object[] values = table.values;
+        int mask = values.length - 1;
+        int slot = hash & mask;
+        while (values[slot] != null && keys[slot] != key) {
+          slot = (slot + 1) & mask;
+        }
+        if (values[slot] == null) {
+          return null;
+        }
+        V previous = (V) values[slot];
+        shiftBack(keys, values, slot, mask);
+        size--;
+        return previous;
+      } finally {
+        unlockWrite(stamp);
+      }
+    }
+
+    private static void shiftBack(long[] keys, Object[] values, int free, int mask) {
+      for (int slot = (free + 1) & mask; values[slot] != null; slot = (slot + 1) & mask) {
+        int home = (int) hash(keys[slot]) & mask;
+        if (((slot - home) & mask) >= ((slot - free) & mask)) {
+          keys[free] = keys[slot];
+          values[free] = values[slot];
+          free = slot;
+        }
+      }
+      values[free] = null;
+      keys[free] = 0;
+    }
+
+    private static Table resize(Table old) {
+      Table resized = new Table(old.values.length << 1);
+      int mask = resized.values.length - 1;
+      for (int i = 0; i < old.values.length; i++) {
+        Object value = old.values[i];
+        if (value != null) {
+          int slot = (int) hash(old.keys[i]) & mask;
+          while (resized.values[slot] != null) {
+            slot = (slot + 1) & mask;
+          }
+          resized.keys[slot] = old.keys[i];
+          resized.values[slot] = value;
+        }
+      }
+      return resized;
+    }
+
+    private void clear() {
+      long stamp = writeLock();
+      try {
+        table = new Table(MIN_SEGMENT_CAPACITY);
+        size = 0;
+      } finally {
+        unlockWrite(stamp);
+      }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void forEachValue(Consumer<? super V> action) {
+      Object[] values;
+      long stamp = readLock();
+      try {
+        values = table.values.clone();
+      } finally {
+        unlockRead(stamp);
+      }
+      for (Object value : values) {
+        if (value != null) {
+          action.accept((V) value);
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,77 @@
+package org.example.persistance.storage;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+// Bounded queue for many producers and one consumer: producers claim a slot with a single CAS on the tail and publish
+// it through the slot sequence, the consumer reads slots in order without any atomic read-modify-write.
+public class MpscRingBuffer<E> {
+
+  private final int mask;
+  private final AtomicReferenceArray<E> slots;
+  private final AtomicLongArray sequences;
+  private final AtomicLong tail = new AtomicLong();
+  private volatile long head;
+
+  public MpscRingBuffer(int capacity) {
+    int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+    this.mask = size - 1;
+    this.slots = new AtomicReferenceArray<>(size);
+    this.sequences = new AtomicLongArray(size);
+    for (int i = 0; i < size; i++) {
+      sequences.set(i, i);
+    }
+  }
+
+  public boolean offer(E element) {
+    if (element == null) {
+      throw new NullPointerException();
+    }
+    long position = tail.get();
+    while (true) {
+      int slot = (int) position & mask;
+      long available = sequences.get(slot) - position;
+      if (available == 0) {
+        if (tail.compareAndSet(position, position + 1)) {
+          slots.lazySet(slot, element);
+          sequences.set(slot, position + 1);
+          return true;
+        }
+        position = tail.get();
+      } else if (available < 0) {
+        return false;
+      } else {
+        position = tail.get();
+      }
+    }
+  }
+
+  // only ever called from the consumer thread
+  public int drain(Consumer<? super E> consumer, int limit) {
+    long position = head;
+    int drained = 0;
+    for (; drained < limit; drained++, position++) {
+      int slot = (int) position & mask;
+      if (sequences.get(slot) != position + 1) {
+        break;
+      }
+      E element = slots.get(slot);
+      slots.lazySet(slot, null);
+      sequences.set(slot, position + mask + 1);
+      consumer.accept(element);
+    }
+    head = position;
+    return drained;
+  }
+
+  public boolean isEmpty() {
+    long position = head;
+    return sequences.get((int) position & mask) != position + 1;
+  }
+
+  public int capacity() {
+    return mask + 1;
+  }
+}
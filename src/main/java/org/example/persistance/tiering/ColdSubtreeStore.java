@@ -0,0 +1,196 @@
+package org.example.persistance.tiering;
+
+import static java.nio.channels.FileChannel.MapMode.READ_ONLY;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.CREATE_NEW;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+import org.example.model.SpilledChilds;
+import org.example.model.Transaction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+// Append-only segment files with the frozen subtrees of old rollbacks. A subtree is written once, its nodes in
+// pre-order each followed by its child count, and read back through a read-only mapping of its bytes. Nothing
+// refers to the files after a restart, the heap is rebuilt from the log and the snapshots, so they are deleted on open.
+public class ColdSubtreeStore implements Closeable {
+
+  private static final Logger logger = LoggerFactory.getLogger(ColdSubtreeStore.class);
+  private static final String SEGMENT_PREFIX = "cold-";
+  private static final String SEGMENT_SUFFIX = ".seg";
+  private static final int ROLLBACK_ROOT = 1;
+
+  private final Path directory;
+  private final long segmentSize;
+  private final ReentrantLock appendLock = new ReentrantLock();
+  private final Queue<FileChannel> segments = new ConcurrentLinkedQueue<>();
+  private final AtomicLong writtenBytes = new AtomicLong();
+  private FileChannel segment;
+  private long segmentIndex;
+
+  public ColdSubtreeStore(Path directory, long segmentSize) throws IOException {
+    this.directory = Files.createDirectories(directory);
+    this.segmentSize = segmentSize;
+    try (Stream<Path> files = Files.list(directory)) {
+      for (Path file : (Iterable<Path>) files::iterator) {
+        if (isSegment(file)) {
+          Files.delete(file);
+        }
+      }
+    }
+  }
+
+  // the descendants of a rollbacked transaction in pre-order, nothing can change under it anymore
+  public SpilledChilds write(List<Transaction> descendants) throws IOException {
+    ByteBuffer record = ByteBuffer.wrap(encode(descendants));
+    appendLock.lock();
+    try {
+      if (segment == null || segment.size() + record.remaining() > segmentSize) {
+        segment = FileChannel.open(directory.resolve(SEGMENT_PREFIX + segmentIndex++ + SEGMENT_SUFFIX),
+                                   CREATE_NEW, READ, WRITE);
+        segments.add(segment);
+      }
+      long offset = segment.size();
+      while (record.hasRemaining()) {
+        segment.write(record, offset + record.position());
+      }
+      writtenBytes.addAndGet(record.capacity());
+      return new Spilled(segment, offset, record.capacity());
+    } finally {
+      appendLock.unlock();
+    }
+  }
+
+  public long writtenBytes() {
+    return writtenBytes.get();
+  }
+
+  @Override
+  public void close() {
+    for (FileChannel channel : segments) {
+      try {
+        channel.close();
+      } catch (IOException e) {
+        logger.warn("Cannot close cold segment", e);
+      }
+    }
+  }
+
+  private static byte[] encode(List<Transaction> descendants) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(descendants.size() * 64);
+    DataOutputStream output = new DataOutputStream(bytes);
+    for (Transaction transaction : descendants) {
+      byte[] type = transaction.getType().getBytes(UTF_8);
+      output.writeLong(transaction.getId());
+      output.writeLong(transaction.getParentId());
+      output.writeLong(transaction.getAmountCents());
+      output.writeByte(transaction.getAmountScale());
+      output.writeShort(type.length);
+      output.write(type);
+      output.writeLong(transaction.getCreatedSequence());
+      output.writeByte(transaction.isRollbackRoot() ? ROLLBACK_ROOT : 0);
+      output.writeLong(transaction.getRollbackSequence());
+      output.writeLong(transaction.getSubtreeAmountCents());
+      output.writeByte(transaction.getSubtreeAmountScale());
+      output.writeInt(transaction.getChildCount());
+    }
+    output.flush();
+    return bytes.toByteArray();
+  }
+
+  private static boolean isSegment(Path file) {
+    String name = file.getFileName().toString();
+    return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+  }
+
+  private static final class Spilled implements SpilledChilds {
+
+    private final FileChannel segment;
+    private final long offset;
+    private final int length;
+
+    private Spilled(FileChannel segment, long offset, int length) {
+      this.segment = segment;
+      this.offset = offset;
+      this.length = length;
+    }
+
+    // every node is followed by its descendants, so the nodes still missing children are a path from the parent
+    @Override
+    public Transaction[] load(Transaction parent) {
+      ByteBuffer bytes;
+      try {
+        bytes = segment.map(READ_ONLY, offset, length);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      Transaction[] childs = new Transaction[parent.getChildCount()];
+      Transaction[] path = new Transaction[16];
+      int[] missing = new int[16];
+      path[0] = parent;
+      missing[0] = childs.length;
+      int depth = 0;
+      int loaded = 0;
+      while (depth >= 0) {
+        if (missing[depth] == 0) {
+          depth--;
+          continue;
+        }
+        missing[depth]--;
+        Transaction node = read(bytes);
+        int childCount = bytes.getInt();
+        node.setParent(path[depth]);
+        if (depth == 0) {
+          childs[loaded++] = node;
+        } else {
+          path[depth].addChild(node);
+        }
+        if (childCount > 0) {
+          if (++depth == path.length) {
+            path = Arrays.copyOf(path, depth << 1);
+            missing = Arrays.copyOf(missing, depth << 1);
+          }
+          path[depth] = node;
+          missing[depth] = childCount;
+        }
+      }
+      return childs;
+    }
+
+    private static Transaction read(ByteBuffer bytes) {
+      long id = bytes.getLong();
+      long parentId = bytes.getLong();
+      long amountCents = bytes.getLong();
+      byte amountScale = bytes.get();
+      byte[] type = new byte[Short.toUnsignedInt(bytes.getShort())];
+      bytes.get(type);
+      Transaction transaction = Transaction.restore(id, parentId, amountCents, amountScale, new String(type, UTF_8));
+      transaction.setCreatedSequence(bytes.getLong());
+      boolean rollbackRoot = bytes.get() == ROLLBACK_ROOT;
+      long rollbackSequence = bytes.getLong();
+      if (rollbackRoot) {
+        transaction.rollback(rollbackSequence);
+      }
+      transaction.addToSubtreeAmount(bytes.getLong() - amountCents, bytes.get());
+      return transaction;
+    }
+  }
+}
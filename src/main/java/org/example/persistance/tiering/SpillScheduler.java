@@ -0,0 +1,41 @@
+package org.example.persistance.tiering;
+
+import java.io.Closeable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.example.persistance.TransactionsHolder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class SpillScheduler implements Closeable {
+
+  private static final Logger logger = LoggerFactory.getLogger(SpillScheduler.class);
+
+  private final ScheduledExecutorService executor;
+
+  public SpillScheduler(TransactionsHolder transactionsHolder, long minAgeMillis, long intervalMillis) {
+    this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "cold-spiller");
+      thread.setDaemon(true);
+      return thread;
+    });
+    executor.scheduleWithFixedDelay(() -> {
+      try {
+        long spilled = transactionsHolder.spillColdSubtrees(minAgeMillis);
+        if (spilled > 0) {
+          logger.debug("Spilled {} rollbacked transactions to the cold store", spilled);
+        }
+      } catch (Exception e) {
+        // the subtrees that were not spilled stay in the heap and are tried again on the next run
+        logger.error("Spilling cold subtrees failed", e);
+      }
+    }, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+  }
+
+  @Override
+  public void close() {
+    executor.shutdown();
+  }
+}
@@ -0,0 +1,83 @@
+package org.example.persistance.wal;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32C;
+
+class WalReader {
+
+  private static final int TYPE_CACHE_SIZE = 256;
+
+  private final ByteBuffer buffer;
+  private final ByteBuffer crcView;
+  private final CRC32C crc = new CRC32C();
+  private final byte[][] cachedTypeBytes = new byte[TYPE_CACHE_SIZE][];
+  private final String[] cachedTypes = new String[TYPE_CACHE_SIZE];
+
+  WalReader(ByteBuffer buffer) {
+    this.buffer = buffer;
+    this.crcView = buffer.duplicate();
+  }
+
+  void readAll(WalRecordHandler handler) {
+    while (buffer.remaining() >= WriteAheadLog.HEADER_BYTES) {
+      int start = buffer.position();
+      int length = buffer.getInt();
+      int checksum = buffer.getInt();
+      if (length <= 0 || length > buffer.remaining() || !matches(start + WriteAheadLog.HEADER_BYTES, length, checksum)) {
+        return;
+      }
+      byte kind = buffer.get();
+      long sequence = buffer.getLong();
+      long id = buffer.getLong();
+      if (kind == WriteAheadLog.ADD) {
+        long parentId = buffer.getLong();
+        long amountCents = buffer.getLong();
+        byte amountScale = buffer.get();
+        String type = readType(buffer.getShort());
+        handler.onAdd(sequence, id, parentId, amountCents, amountScale, type);
+      } else if (kind == WriteAheadLog.ROLLBACK) {
+        handler.onRollback(sequence, id);
+      } else {
+        throw new IllegalStateException("Unknown write ahead log record kind: " + kind);
+      }
+    }
+  }
+
+  private boolean matches(int payloadStart, int length, int checksum) {
+    crc.reset();
+    crc.update(crcView.limit(payloadStart + length).position(payloadStart));
+    return (int) crc.getValue() == checksum;
+  }
+
+  private String readType(int length) {
+    int start = buffer.position();
+    int hash = 1;
+    for (int i = 0; i < length; i++) {
+      hash = 31 * hash + buffer.get(start + i);
+    }
+    int slot = hash & (TYPE_CACHE_SIZE - 1);
+    byte[] cached = cachedTypeBytes[slot];
+    if (cached == null || !sameBytes(cached, start, length)) {
+      cached = new byte[length];
+      buffer.get(start, cached);
+      cachedTypeBytes[slot] = cached;
+      cachedTypes[slot] = new String(cached, UTF_8).intern();
+    }
+    buffer.position(start + length);
+    return cachedTypes[slot];
+  }
+
+  private boolean sameBytes(byte[] cached, int start, int length) {
+    if (cached.length != length) {
+      return false;
+    }
+    for (int i = 0; i < length; i++) {
+      if (cached[i] != buffer.get(start + i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
@@ -0,0 +1,8 @@
+package org.example.persistance.wal;
+
+public interface WalRecordHandler {
+
+  void onAdd(long sequence, long id, long parentId, long amountCents, int amountScale, String type);
+
+  void onRollback(long sequence, long id);
+}
@@ -0,0 +1,233 @@
+package org.example.persistance.wal;
+
+import static java.nio.channels.FileChannel.MapMode.READ_ONLY;
+import static java.nio.channels.FileChannel.MapMode.READ_WRITE;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.CREATE_NEW;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+import org.example.model.Transaction;
+
+public class WriteAheadLog implements Closeable {
+
+  static final byte ADD = 1;
+  static final byte ROLLBACK = 2;
+  static final int HEADER_BYTES = Integer.BYTES * 2;
+  static final int ADD_BYTES = 1 + Long.BYTES * 4 + 1 + Short.BYTES;
+  static final int ROLLBACK_BYTES = 1 + Long.BYTES * 2;
+
+  private static final String SEGMENT_PREFIX = "wal-";
+  private static final String SEGMENT_SUFFIX = ".log";
+
+  private final Path directory;
+  private final int segmentSize;
+  private final boolean syncOnCommit;
+  private final Map<String, byte[]> encodedTypes = new ConcurrentHashMap<>();
+  private final CRC32C crc = new CRC32C();
+  // locks rather than monitors, so virtual threads blocked on an append or an fsync release their carrier
+  private final ReentrantLock appendLock = new ReentrantLock();
+  private final ReentrantLock forceLock = new ReentrantLock();
+  private final ScheduledExecutorService flusher;
+
+  private long segmentIndex;
+  private MappedByteBuffer segment;
+  private ByteBuffer crcView;
+  private int recordStart;
+  private long written;
+  private volatile long durable;
+
+  public WriteAheadLog(Path directory, int segmentSize, boolean syncOnCommit, long flushIntervalMillis) throws IOException {
+    this.directory = Files.createDirectories(directory);
+    this.segmentSize = segmentSize;
+    this.syncOnCommit = syncOnCommit;
+    this.segmentIndex = segments().stream().mapToLong(WriteAheadLog::segmentIndexOf).max().orElse(-1);
+    this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "wal-flusher");
+      thread.setDaemon(true);
+      return thread;
+    });
+    flusher.scheduleWithFixedDelay(() -> sync(writtenBytes()), flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+  }
+
+  public List<Path> segments() throws IOException {
+    try (Stream<Path> files = Files.list(directory)) {
+      return files.filter(WriteAheadLog::isSegment)
+          .sorted((first, second) -> Long.compare(segmentIndexOf(first), segmentIndexOf(second)))
+          .collect(Collectors.toList());
+    }
+  }
+
+  public long appendAdd(long sequence, Transaction transaction) {
+    byte[] type = encodedTypes.computeIfAbsent(transaction.getType(), value -> value.getBytes(UTF_8));
+    appendLock.lock();
+    try {
+      ByteBuffer buffer = reserve(ADD_BYTES + type.length);
+      buffer.put(ADD)
+          .putLong(sequence)
+          .putLong(transaction.getId())
+          .putLong(transaction.getParentId())
+          .putLong(transaction.getAmountCents())
+          .put(transaction.getAmountScale())
+          .putShort((short) type.length)
+          .put(type);
+      return commit(buffer);
+    } finally {
+      appendLock.unlock();
+    }
+  }
+
+  public long appendRollback(long sequence, long id) {
+    appendLock.lock();
+    try {
+      ByteBuffer buffer = reserve(ROLLBACK_BYTES);
+      buffer.put(ROLLBACK)
+          .putLong(sequence)
+          .putLong(id);
+      return commit(buffer);
+    } finally {
+      appendLock.unlock();
+    }
+  }
+
+  public long rollOnNextAppend() {
+    appendLock.lock();
+    try {
+      if (segment != null) {
+        segment.force();
+        segment = null;
+      }
+      return segmentIndex + 1;
+    } finally {
+      appendLock.unlock();
+    }
+  }
+
+  public void deleteSegmentsBefore(long boundary) throws IOException {
+    for (Path segmentFile : segments()) {
+      if (segmentIndexOf(segmentFile) < boundary) {
+        Files.deleteIfExists(segmentFile);
+      }
+    }
+  }
+
+  // the position every record appended so far ends at
+  public long writtenBytes() {
+    appendLock.lock();
+    try {
+      return written;
+    } finally {
+      appendLock.unlock();
+    }
+  }
+
+  public void awaitDurable(long position) {
+    if (syncOnCommit) {
+      sync(position);
+    }
+  }
+
+  public void sync(long position) {
+    if (durable >= position) {
+      return;
+    }
+    forceLock.lock();
+    try {
+      if (durable >= position) {
+        return;
+      }
+      long target;
+      MappedByteBuffer current;
+      appendLock.lock();
+      try {
+        target = written;
+        current = segment;
+      } finally {
+        appendLock.unlock();
+      }
+      if (current != null) {
+        current.force();
+      }
+      durable = target;
+    } finally {
+      forceLock.unlock();
+    }
+  }
+
+  public void read(Path segmentFile, WalRecordHandler handler) throws IOException {
+    try (FileChannel channel = FileChannel.open(segmentFile, READ)) {
+      new WalReader(channel.map(READ_ONLY, 0, channel.size())).readAll(handler);
+    }
+  }
+
+  @Override
+  public void close() {
+    flusher.shutdownNow();
+    sync(writtenBytes());
+  }
+
+  private ByteBuffer reserve(int payloadBytes) {
+    int recordBytes = HEADER_BYTES + payloadBytes;
+    if (segment == null || segment.remaining() < recordBytes) {
+      rollSegment(Math.max(segmentSize, recordBytes));
+    }
+    recordStart = segment.position();
+    segment.position(recordStart + HEADER_BYTES);
+    return segment;
+  }
+
+  private long commit(ByteBuffer buffer) {
+    int end = buffer.position();
+    int payloadStart = recordStart + HEADER_BYTES;
+    crc.reset();
+    crc.update(crcView.limit(end).position(payloadStart));
+    buffer.putInt(recordStart + Integer.BYTES, (int) crc.getValue());
+    buffer.putInt(recordStart, end - payloadStart);
+    written += end - recordStart;
+    return written;
+  }
+
+  private void rollSegment(int size) {
+    try {
+      if (segment != null) {
+        segment.force();
+      }
+      Path file = directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, ++segmentIndex, SEGMENT_SUFFIX));
+      try (FileChannel channel = FileChannel.open(file, CREATE_NEW, READ, WRITE)) {
+        segment = channel.map(READ_WRITE, 0, size);
+      }
+      crcView = segment.duplicate();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private static boolean isSegment(Path path) {
+    String name = path.getFileName().toString();
+    return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+  }
+
+  static long segmentIndexOf(Path path) {
+    String name = path.getFileName().toString();
+    return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+  }
+}
@@ -0,0 +1,138 @@
+package org.example.reactive;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.controller.TransactionBatchProcessor;
+import org.example.model.Transaction;
+import org.example.persistance.TransactionsHolder;
+import org.example.serializer.TransactionBatchRequest;
+import org.example.serializer.TransactionBatchResponse;
+import org.example.serializer.TransactionJsonWriter;
+import org.example.serializer.TransactionSerializerRequest;
+import org.example.serializer.TransactionSerializerResponse;
+import org.example.serializer.TypePageSerializer;
+import org.example.serializer.TypeTotalsSerializer;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+// Non-blocking facade over the holder: reads are lock free and answered in place, writes go through the tree
+// mailboxes and batches are inserted one chunk at a time as the request body arrives.
+public class ReactiveTransactions implements Closeable {
+
+  // node starts and ends written per emitted buffer of a subtree dump
+  private static final int TREE_CHUNK_STEPS = 512;
+
+  private final TransactionsHolder transactionsHolder;
+  private final TreeMailboxes mailboxes;
+  private final TransactionBatchProcessor batchProcessor;
+  private final ObjectMapper objectMapper;
+
+  public ReactiveTransactions(TransactionsHolder transactionsHolder, TransactionBatchProcessor batchProcessor,
+                              ObjectMapper objectMapper, int mailboxCount, int mailboxCapacity, int writerThreads) {
+    this.transactionsHolder = transactionsHolder;
+    this.mailboxes = new TreeMailboxes(mailboxCount, mailboxCapacity, writerThreads);
+    this.batchProcessor = batchProcessor;
+    this.objectMapper = objectMapper;
+  }
+
+  public Mono<TransactionSerializerResponse> add(long id, TransactionSerializerRequest request) {
+    long rootId = request.getParentId().flatMap(transactionsHolder::findTransaction).map(Transaction::getRootId).orElse(id);
+    return mailboxes.submit(rootId, () -> transactionsHolder.addTransaction(id, request));
+  }
+
+  public Mono<TransactionSerializerResponse> rollback(long id) {
+    long rootId = transactionsHolder.findTransaction(id).map(Transaction::getRootId).orElse(id);
+    return mailboxes.submit(rootId, () -> transactionsHolder.rollbackTransaction(id));
+  }
+
+  // concatMap asks for the next chunk only once the previous one is stored, which paces the body read
+  public Flux<TransactionBatchResponse> addAll(Flux<TransactionBatchRequest> requests) {
+    return requests.buffer(TransactionBatchProcessor.CHUNK_SIZE)
+        .concatMap(chunk -> Mono.fromCallable(() -> batchProcessor.process(chunk)).subscribeOn(Schedulers.boundedElastic()))
+        .concatMapIterable(Arrays::asList);
+  }
+
+  public Mono<BigDecimal> sum(long id) {
+    return Mono.fromSupplier(() -> transactionsHolder.getSum(id));
+  }
+
+  public Flux<Long> idsByType(String type, long after) {
+    return Flux.defer(() -> Flux.fromIterable(transactionsHolder.getIdsByType(type, after)));
+  }
+
+  public Mono<TypePageSerializer> pageByType(String type, long after, int limit) {
+    return Mono.fromSupplier(() -> TypePageSerializer.of(transactionsHolder.getIdsByType(type, after), limit));
+  }
+
+  public Mono<List<TypeTotalsSerializer>> typeTotals() {
+    return Mono.fromSupplier(() -> transactionsHolder.getTypeTotals());
+  }
+
+  public Mono<TypeTotalsSerializer> typeTotals(String type) {
+    return Mono.fromSupplier(() -> transactionsHolder.getTypeTotals(type));
+  }
+
+  public Optional<Flux<byte[]>> tree(long id, int maxDepth) {
+    return transactionsHolder.findVisibleTransaction(id).map(transaction -> {
+      long readSequence = transactionsHolder.visibleSequence(transaction);
+      return Flux.<byte[], JsonChunks>generate(
+          () -> new JsonChunks(objectMapper, new TransactionJsonWriter(transaction, maxDepth, readSequence)),
+          (chunks, sink) -> {
+            try {
+              sink.next(chunks.next());
+              if (chunks.isComplete()) {
+                sink.complete();
+              }
+            } catch (IOException e) {
+              sink.error(new UncheckedIOException(e));
+            }
+            return chunks;
+          });
+    });
+  }
+
+  @Override
+  public void close() {
+    mailboxes.close();
+  }
+
+  // one generator kept across chunks so the json nesting survives between emitted buffers
+  private static final class JsonChunks {
+
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    private final JsonGenerator generator;
+    private final TransactionJsonWriter writer;
+    private boolean complete;
+
+    private JsonChunks(ObjectMapper objectMapper, TransactionJsonWriter writer) throws IOException {
+      this.generator = objectMapper.getFactory().createGenerator(buffer);
+      this.writer = writer;
+    }
+
+    private byte[] next() throws IOException {
+      complete = !writer.write(generator, TREE_CHUNK_STEPS);
+      if (complete) {
+        generator.close();
+      } else {
+        generator.flush();
+      }
+      byte[] bytes = buffer.toByteArray();
+      buffer.reset();
+      return bytes;
+    }
+
+    private boolean isComplete() {
+      return complete;
+    }
+  }
+}
@@ -0,0 +1,119 @@
+package org.example.reactive;
+
+import static org.springframework.http.HttpStatus.CREATED;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.http.MediaType.APPLICATION_NDJSON;
+
+import java.util.Optional;
+import java.util.Set;
+
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.example.serializer.SumSerializer;
+import org.example.serializer.TransactionBatchRequest;
+import org.example.serializer.TransactionBatchResponse;
+import org.example.serializer.TransactionJsonWriter;
+import org.example.serializer.TransactionSerializerRequest;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.BodyInserters;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import org.springframework.web.server.ServerWebInputException;
+import reactor.core.publisher.Mono;
+
+public class TransactionHandler {
+
+  private final ReactiveTransactions transactions;
+  private final Validator validator;
+
+  public TransactionHandler(ReactiveTransactions transactions, Validator validator) {
+    this.transactions = transactions;
+    this.validator = validator;
+  }
+
+  public Mono<ServerResponse> findTransactionById(ServerRequest request) {
+    long id = idOf(request);
+    int maxDepth = request.queryParam("depth").map(depth -> Math.max(0, parseInt(depth, "depth")))
+        .orElse(TransactionJsonWriter.UNLIMITED_DEPTH);
+    return transactions.tree(id, maxDepth)
+        .map(chunks -> ServerResponse.ok().contentType(APPLICATION_JSON)
+            .body(BodyInserters.fromDataBuffers(chunks.map(DefaultDataBufferFactory.sharedInstance::wrap))))
+        .orElseGet(() -> ServerResponse.notFound().build());
+  }
+
+  public Mono<ServerResponse> createTransaction(ServerRequest request) {
+    long id = idOf(request);
+    return request.bodyToMono(TransactionSerializerRequest.class)
+        .doOnNext(this::validate)
+        .flatMap(transactionRequest -> transactions.add(id, transactionRequest))
+        .flatMap(created -> ServerResponse.status(CREATED).bodyValue(created));
+  }
+
+  public Mono<ServerResponse> createTransactions(ServerRequest request) {
+    boolean ndjson = request.headers().contentType().map(type -> APPLICATION_NDJSON.isCompatibleWith(type)).orElse(false);
+    return ServerResponse.ok().contentType(ndjson ? APPLICATION_NDJSON : APPLICATION_JSON)
+        .body(transactions.addAll(request.bodyToFlux(TransactionBatchRequest.class)), TransactionBatchResponse.class);
+  }
+
+  public Mono<ServerResponse> getSum(ServerRequest request) {
+    return transactions.sum(idOf(request))
+        .flatMap(sum -> ServerResponse.ok().bodyValue(new SumSerializer(sum)));
+  }
+
+  public Mono<ServerResponse> getByType(ServerRequest request) {
+    boolean ndjson = request.headers().accept().contains(APPLICATION_NDJSON);
+    MediaType contentType = ndjson ? APPLICATION_NDJSON : APPLICATION_JSON;
+    return ServerResponse.ok().contentType(contentType)
+        .body(transactions.idsByType(request.pathVariable("type"), afterOf(request)), Long.class);
+  }
+
+  public Mono<ServerResponse> getPageByType(ServerRequest request) {
+    int limit = parseInt(request.queryParam("limit").orElseThrow(), "limit");
+    return transactions.pageByType(request.pathVariable("type"), afterOf(request), limit)
+        .flatMap(page -> ServerResponse.ok().bodyValue(page));
+  }
+
+  public Mono<ServerResponse> getTypeTotals(ServerRequest request) {
+    return transactions.typeTotals()
+        .flatMap(totals -> ServerResponse.ok().bodyValue(totals));
+  }
+
+  public Mono<ServerResponse> getTypeTotalsOf(ServerRequest request) {
+    return transactions.typeTotals(request.pathVariable("type"))
+        .flatMap(totals -> ServerResponse.ok().bodyValue(totals));
+  }
+
+  public Mono<ServerResponse> rollback(ServerRequest request) {
+    return transactions.rollback(idOf(request))
+        .flatMap(rollbacked -> ServerResponse.ok().bodyValue(rollbacked));
+  }
+
+  private void validate(TransactionSerializerRequest request) {
+    Set<ConstraintViolation<TransactionSerializerRequest>> violations = validator.validate(request);
+    if (!violations.isEmpty()) {
+      throw new ServerWebInputException(violations.iterator().next().getMessage());
+    }
+  }
+
+  private static long idOf(ServerRequest request) {
+    return parse(request.pathVariable("id"), "id");
+  }
+
+  private static long afterOf(ServerRequest request) {
+    Optional<String> after = request.queryParam("after");
+    return after.isPresent() ? parse(after.get(), "after") : 0;
+  }
+
+  private static int parseInt(String value, String name) {
+    return (int) Math.max(Integer.MIN_VALUE, Math.min(parse(value, name), Integer.MAX_VALUE));
+  }
+
+  private static long parse(String value, String name) {
+    try {
+      return Long.parseLong(value);
+    } catch (NumberFormatException e) {
+      throw new ServerWebInputException("Invalid " + name + ": " + value);
+    }
+  }
+}
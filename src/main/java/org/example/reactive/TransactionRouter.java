@@ -0,0 +1,53 @@
+package org.example.reactive;
+
+import static org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type.REACTIVE;
+import static org.springframework.web.reactive.function.server.RequestPredicates.queryParam;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.Validator;
+import org.example.controller.TransactionBatchProcessor;
+import org.example.persistance.TransactionsHolder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerResponse;
+
+@Configuration
+@ConditionalOnWebApplication(type = REACTIVE)
+public class TransactionRouter {
+
+  @Bean(destroyMethod = "close")
+  public ReactiveTransactions reactiveTransactions(TransactionsHolder transactionsHolder, Validator validator,
+                                                   ObjectMapper objectMapper,
+                                                   @Value("${transactions.reactive.mailboxes:64}") int mailboxes,
+                                                   @Value("${transactions.reactive.mailbox-capacity:1024}") int mailboxCapacity,
+                                                   @Value("${transactions.reactive.writer-threads:0}") int writerThreads) {
+    int threads = writerThreads > 0 ? writerThreads : Runtime.getRuntime().availableProcessors();
+    return new ReactiveTransactions(transactionsHolder, new TransactionBatchProcessor(transactionsHolder, validator),
+        objectMapper, mailboxes, mailboxCapacity, threads);
+  }
+
+  @Bean
+  public TransactionHandler transactionHandler(ReactiveTransactions reactiveTransactions, Validator validator) {
+    return new TransactionHandler(reactiveTransactions, validator);
+  }
+
+  @Bean
+  public RouterFunction<ServerResponse> transactionRoutes(TransactionHandler handler) {
+    return RouterFunctions.route()
+        .path("/transactions", routes -> routes
+            .POST("/batch", handler::createTransactions)
+            .GET("/sum/{id}", handler::getSum)
+            .GET("/types/{type}", queryParam("limit", limit -> true), handler::getPageByType)
+            .GET("/types/{type}", handler::getByType)
+            .GET("/totals", handler::getTypeTotals)
+            .GET("/totals/{type}", handler::getTypeTotalsOf)
+            .GET("/{id}", handler::findTransactionById)
+            .PUT("/{id}", handler::createTransaction)
+            .DELETE("/{id}", handler::rollback))
+        .build();
+  }
+}
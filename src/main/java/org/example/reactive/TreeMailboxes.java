@@ -0,0 +1,104 @@
+package org.example.reactive;
+
+import java.io.Closeable;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.example.exceptions.TransactionsBusyException;
+import reactor.core.publisher.Mono;
+
+// Writes of a tree run one at a time from a bounded mailbox, so a burst on one tree fills its mailbox and is
+// rejected instead of parking threads on the tree lock. Trees are striped over the mailboxes by root id.
+class TreeMailboxes implements Closeable {
+
+  private static final int DRAIN_BATCH = 256;
+
+  private final Mailbox[] mailboxes;
+  private final ExecutorService writers;
+
+  TreeMailboxes(int mailboxCount, int capacity, int writerThreads) {
+    int count = Integer.highestOneBit(Math.max(1, mailboxCount - 1)) << 1;
+    this.mailboxes = new Mailbox[count];
+    for (int i = 0; i < count; i++) {
+      mailboxes[i] = new Mailbox(capacity);
+    }
+    AtomicInteger threads = new AtomicInteger();
+    this.writers = Executors.newFixedThreadPool(writerThreads, runnable -> {
+      Thread thread = new Thread(runnable, "transactions-writer-" + threads.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  <T> Mono<T> submit(long rootId, Supplier<T> command) {
+    return Mono.defer(() -> {
+      CompletableFuture<T> result = new CompletableFuture<>();
+      boolean accepted = mailboxFor(rootId).offer(() -> {
+        try {
+          result.complete(command.get());
+        } catch (RuntimeException e) {
+          result.completeExceptionally(e);
+        }
+      });
+      if (!accepted) {
+        return Mono.error(new TransactionsBusyException());
+      }
+      return Mono.fromFuture(result);
+    });
+  }
+
+  @Override
+  public void close() {
+    writers.shutdown();
+  }
+
+  private Mailbox mailboxFor(long rootId) {
+    long hash = rootId * 0x9E3779B97F4A7C15L;
+    return mailboxes[(int) (hash ^ (hash >>> 32)) & (mailboxes.length - 1)];
+  }
+
+  private final class Mailbox implements Runnable {
+
+    private final ArrayBlockingQueue<Runnable> pending;
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+
+    private Mailbox(int capacity) {
+      this.pending = new ArrayBlockingQueue<>(capacity);
+    }
+
+    private boolean offer(Runnable command) {
+      if (!pending.offer(command)) {
+        return false;
+      }
+      schedule();
+      return true;
+    }
+
+    // at most DRAIN_BATCH commands per turn, then the writer thread goes back to the pool for other mailboxes
+    @Override
+    public void run() {
+      for (int i = 0; i < DRAIN_BATCH; i++) {
+        Runnable command = pending.poll();
+        if (command == null) {
+          break;
+        }
+        command.run();
+      }
+      scheduled.set(false);
+      if (!pending.isEmpty()) {
+        schedule();
+      }
+    }
+
+    private void schedule() {
+      if (scheduled.compareAndSet(false, true)) {
+        writers.execute(this);
+      }
+    }
+  }
+}
@@ -0,0 +1,40 @@
+package org.example.replication;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.example.exceptions.ReadOnlyReplicaException;
+import org.example.exceptions.ReplicaBehindException;
+import org.springframework.http.HttpMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+// Followers only serve reads. With read your writes, a read carrying the offset the leader answered a write with
+// waits until the replica applied it, or fails once the wait is over.
+public class ReplicaRequestInterceptor implements HandlerInterceptor {
+
+  private final ReplicationFollower follower;
+  private final boolean readYourWrites;
+  private final long maxWaitMillis;
+
+  public ReplicaRequestInterceptor(ReplicationFollower follower, boolean readYourWrites, long maxWaitMillis) {
+    this.follower = follower;
+    this.readYourWrites = readYourWrites;
+    this.maxWaitMillis = maxWaitMillis;
+  }
+
+  @Override
+  public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+    HttpMethod method = HttpMethod.valueOf(request.getMethod());
+    if (method != HttpMethod.GET && method != HttpMethod.HEAD && method != HttpMethod.OPTIONS) {
+      throw new ReadOnlyReplicaException();
+    }
+    String requested = request.getHeader(ReplicationProtocol.OFFSET_HEADER);
+    if (readYourWrites && requested != null) {
+      long offset = Long.parseLong(requested);
+      if (!follower.awaitOffset(offset, maxWaitMillis)) {
+        throw new ReplicaBehindException(offset, follower.appliedOffset());
+      }
+    }
+    response.setHeader(ReplicationProtocol.OFFSET_HEADER, Long.toString(follower.appliedOffset()));
+    return true;
+  }
+}
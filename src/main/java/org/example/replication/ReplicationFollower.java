@@ -0,0 +1,151 @@
+package org.example.replication;
+
+import static java.util.Optional.empty;
+import static java.util.Optional.of;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import org.example.model.Amounts;
+import org.example.persistance.TransactionsHolder;
+import org.example.serializer.TransactionSerializerRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+// Applies the leader's log to the local holder and reconnects from the last applied offset whenever the stream breaks.
+public class ReplicationFollower implements Closeable {
+
+  private static final Logger logger = LoggerFactory.getLogger(ReplicationFollower.class);
+  private static final long WAIT_STEP_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+  private final TransactionsHolder transactionsHolder;
+  private final String host;
+  private final int port;
+  private final long reconnectMillis;
+  private final Thread reader;
+  private long logId;
+  private volatile long appliedOffset;
+  private volatile long leaderOffset;
+  private volatile boolean running = true;
+  private volatile Socket socket;
+
+  public ReplicationFollower(TransactionsHolder transactionsHolder, String host, int port, long reconnectMillis) {
+    this.transactionsHolder = transactionsHolder;
+    this.host = host;
+    this.port = port;
+    this.reconnectMillis = reconnectMillis;
+    this.reader = new Thread(this::replicate, "replication-follower");
+    reader.setDaemon(true);
+    reader.start();
+  }
+
+  public long appliedOffset() {
+    return appliedOffset;
+  }
+
+  public long lag() {
+    return Math.max(0, leaderOffset - appliedOffset);
+  }
+
+  public boolean awaitOffset(long offset, long timeoutMillis) {
+    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+    while (appliedOffset < offset) {
+      if (System.nanoTime() - deadline >= 0) {
+        return false;
+      }
+      LockSupport.parkNanos(WAIT_STEP_NANOS);
+    }
+    return true;
+  }
+
+  @Override
+  public void close() throws IOException {
+    running = false;
+    Socket current = socket;
+    if (current != null) {
+      current.close();
+    }
+    try {
+      reader.join(TimeUnit.SECONDS.toMillis(5));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void replicate() {
+    while (running) {
+      try (Socket connection = new Socket(host, port)) {
+        socket = connection;
+        connection.setTcpNoDelay(true);
+        DataOutputStream output = new DataOutputStream(new BufferedOutputStream(connection.getOutputStream()));
+        output.writeByte(ReplicationProtocol.SUBSCRIBE);
+        output.writeLong(logId);
+        output.writeLong(appliedOffset);
+        output.flush();
+        apply(new DataInputStream(new BufferedInputStream(connection.getInputStream())));
+      } catch (IOException e) {
+        if (running) {
+          logger.warn("Replication from {}:{} interrupted at offset {}: {}", host, port, appliedOffset, e.getMessage());
+          LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(reconnectMillis));
+        }
+      }
+    }
+  }
+
+  private void apply(DataInputStream input) throws IOException {
+    while (running) {
+      byte kind = input.readByte();
+      switch (kind) {
+        case ReplicationProtocol.RESET -> reset(input.readLong());
+        case ReplicationProtocol.ADD -> {
+          long sequence = input.readLong();
+          long id = input.readLong();
+          long parentId = input.readLong();
+          long amountCents = input.readLong();
+          byte amountScale = input.readByte();
+          String type = ReplicationProtocol.readType(input);
+          applied(sequence, () -> transactionsHolder.addTransaction(id, new TransactionSerializerRequest(
+              Amounts.fromCents(amountCents, amountScale), type, parentId == 0 ? empty() : of(parentId))));
+        }
+        case ReplicationProtocol.ROLLBACK -> {
+          long sequence = input.readLong();
+          long id = input.readLong();
+          applied(sequence, () -> transactionsHolder.rollbackTransaction(id));
+        }
+        case ReplicationProtocol.HEARTBEAT -> {
+          long sentUpTo = input.readLong();
+          long leaderLatest = input.readLong();
+          appliedOffset = Math.max(appliedOffset, sentUpTo);
+          leaderOffset = Math.max(leaderOffset, leaderLatest);
+        }
+        default -> throw new IOException("Unknown replication record " + kind);
+      }
+    }
+  }
+
+  // the leader already accepted the record, a failure here means this replica diverged and is only reported
+  private void applied(long sequence, Runnable mutation) {
+    try {
+      mutation.run();
+    } catch (RuntimeException e) {
+      logger.error("Replica diverged from the leader at offset {}", sequence, e);
+    }
+    appliedOffset = sequence;
+    leaderOffset = Math.max(leaderOffset, appliedOffset);
+  }
+
+  private void reset(long leaderLogId) {
+    logger.info("Replicating the log {} of {}:{} from the start", leaderLogId, host, port);
+    transactionsHolder.clearTransactionMap();
+    logId = leaderLogId;
+    appliedOffset = 0;
+    leaderOffset = 0;
+  }
+}
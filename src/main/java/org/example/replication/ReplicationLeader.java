@@ -0,0 +1,207 @@
+package org.example.replication;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import org.example.model.Transaction;
+import org.example.persistance.MutationListener;
+import org.example.persistance.TransactionsHolder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+// Records every mutation of the holder and streams it to the followers, one sender thread each. A follower behind the
+// records still kept is first sent what the holder stored after its offset, the state the write ahead log and the
+// snapshots recover. The log id lives next to them, so only a leader that lost its history makes its followers
+// start over.
+public class ReplicationLeader implements MutationListener, Closeable {
+
+  private static final Logger logger = LoggerFactory.getLogger(ReplicationLeader.class);
+  private static final int SEND_BATCH = 1024;
+  private static final long WAIT_STEP_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+  private static final String LOG_ID_FILE = "replication-log-id";
+
+  private final TransactionsHolder transactionsHolder;
+  private final long logId;
+  private final ReplicationLog log = new ReplicationLog();
+  private final ServerSocket serverSocket;
+  private final long heartbeatMillis;
+  private final Set<Socket> followers = ConcurrentHashMap.newKeySet();
+  private final AtomicInteger senders = new AtomicInteger();
+  private final Thread acceptor;
+
+  public ReplicationLeader(TransactionsHolder transactionsHolder, int port, long heartbeatMillis) throws IOException {
+    this(transactionsHolder, null, port, heartbeatMillis);
+  }
+
+  public ReplicationLeader(TransactionsHolder transactionsHolder, Path stateDirectory, int port, long heartbeatMillis)
+      throws IOException {
+    this.transactionsHolder = transactionsHolder;
+    this.heartbeatMillis = heartbeatMillis;
+    this.logId = stateDirectory == null ? newLogId() : storedLogId(stateDirectory);
+    // a restarted leader takes its port back while the connections of the previous one are still closing
+    this.serverSocket = new ServerSocket();
+    serverSocket.setReuseAddress(true);
+    serverSocket.bind(new InetSocketAddress(port));
+    log.dropUpTo(transactionsHolder.listenToMutations(this));
+    this.acceptor = new Thread(this::accept, "replication-acceptor");
+    acceptor.setDaemon(true);
+    acceptor.start();
+  }
+
+  public int port() {
+    return serverSocket.getLocalPort();
+  }
+
+  public long endOffset() {
+    return transactionsHolder.lastSequence();
+  }
+
+  public int keptRecords() {
+    return log.size();
+  }
+
+  @Override
+  public void onAdd(Transaction transaction) {
+    log.append(transaction.getCreatedSequence(), ReplicationProtocol.add(transaction));
+  }
+
+  @Override
+  public void onRollback(Transaction transaction) {
+    log.append(transaction.getRollbackSequence(), ReplicationProtocol.rollback(transaction));
+  }
+
+  @Override
+  public void close() throws IOException {
+    transactionsHolder.stopListeningToMutations();
+    serverSocket.close();
+    for (Socket follower : followers) {
+      follower.close();
+    }
+    // the port is only released once the acceptor is out of accept
+    try {
+      acceptor.join(TimeUnit.SECONDS.toMillis(5));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private static long newLogId() {
+    return ThreadLocalRandom.current().nextLong(1, Long.MAX_VALUE);
+  }
+
+  private static long storedLogId(Path stateDirectory) throws IOException {
+    Path file = stateDirectory.resolve(LOG_ID_FILE);
+    if (Files.exists(file)) {
+      return Long.parseLong(Files.readString(file).trim());
+    }
+    long logId = newLogId();
+    Files.createDirectories(stateDirectory);
+    Files.writeString(file, Long.toString(logId));
+    return logId;
+  }
+
+  private void accept() {
+    while (!serverSocket.isClosed()) {
+      try {
+        Socket follower = serverSocket.accept();
+        follower.setTcpNoDelay(true);
+        followers.add(follower);
+        Thread sender = new Thread(() -> send(follower), "replication-sender-" + senders.incrementAndGet());
+        sender.setDaemon(true);
+        sender.start();
+      } catch (SocketException e) {
+        // closed while waiting for a follower
+      } catch (IOException e) {
+        logger.warn("Cannot accept a follower", e);
+      }
+    }
+  }
+
+  private void send(Socket follower) {
+    try (follower;
+         DataInputStream input = new DataInputStream(new BufferedInputStream(follower.getInputStream()));
+         DataOutputStream output = new DataOutputStream(new BufferedOutputStream(follower.getOutputStream()))) {
+      if (input.readByte() != ReplicationProtocol.SUBSCRIBE) {
+        throw new IOException("Expected a subscription from " + follower.getRemoteSocketAddress());
+      }
+      long followerLogId = input.readLong();
+      long offset = input.readLong();
+      if (followerLogId != logId || offset > transactionsHolder.lastSequence()) {
+        output.writeByte(ReplicationProtocol.RESET);
+        output.writeLong(logId);
+        offset = 0;
+      }
+      logger.info("Follower {} replicating from offset {}", follower.getRemoteSocketAddress(), offset);
+      try (ReplicationLog.Reader reader = log.open(offset)) {
+        if (!reader.kept()) {
+          sendReplay(reader, output);
+        }
+        byte[][] records = new byte[SEND_BATCH][];
+        while (!follower.isClosed()) {
+          int count = reader.read(transactionsHolder::visibleSequence, records, heartbeatMillis);
+          if (count == 0 && reader.hasPending()) {
+            LockSupport.parkNanos(WAIT_STEP_NANOS);
+            continue;
+          }
+          for (int i = 0; i < count; i++) {
+            output.write(records[i]);
+            records[i] = null;
+          }
+          heartbeat(output, reader.position());
+        }
+      }
+    } catch (IOException e) {
+      logger.info("Follower {} disconnected: {}", follower.getRemoteSocketAddress(), e.getMessage());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      followers.remove(follower);
+    }
+  }
+
+  // the reader keeps every record after the replay, which is held in memory only until it is sent
+  private void sendReplay(ReplicationLog.Reader reader, DataOutputStream output) throws IOException {
+    List<byte[]> replayed = new ArrayList<>();
+    long replayedUpTo = transactionsHolder.replayMutations(reader.position(), new MutationListener() {
+      @Override
+      public void onAdd(Transaction transaction) {
+        replayed.add(ReplicationProtocol.add(transaction));
+      }
+
+      @Override
+      public void onRollback(Transaction transaction) {
+        replayed.add(ReplicationProtocol.rollback(transaction));
+      }
+    });
+    for (byte[] record : replayed) {
+      output.write(record);
+    }
+    reader.skipTo(replayedUpTo);
+    heartbeat(output, replayedUpTo);
+  }
+
+  private void heartbeat(DataOutputStream output, long sentUpTo) throws IOException {
+    output.writeByte(ReplicationProtocol.HEARTBEAT);
+    output.writeLong(sentUpTo);
+    output.writeLong(transactionsHolder.lastSequence());
+    output.flush();
+  }
+}
@@ -0,0 +1,165 @@
+package org.example.replication;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+// Encoded mutations by the sequence the leader stored them at. Only the tail the slowest connected reader still has
+// to send is kept, and nothing while no reader is connected; older records are replayed from the holder instead.
+final class ReplicationLog {
+
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition appended = lock.newCondition();
+  private final TreeMap<Long, byte[]> records = new TreeMap<>();
+  private final List<Reader> readers = new ArrayList<>();
+  // every record after this sequence is kept
+  private long keptAfter;
+
+  void append(long sequence, byte[] record) {
+    lock.lock();
+    try {
+      if (readers.isEmpty()) {
+        keptAfter = Math.max(keptAfter, sequence);
+      } else {
+        records.put(sequence, record);
+        appended.signalAll();
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  // the records up to the sequence were never appended, they are replayed from the holder
+  void dropUpTo(long sequence) {
+    lock.lock();
+    try {
+      keptAfter = Math.max(keptAfter, sequence);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  int size() {
+    lock.lock();
+    try {
+      return records.size();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  // keeps every record after the sequence from now on, the reader has to be closed to let them go
+  Reader open(long after) {
+    lock.lock();
+    try {
+      Reader reader = new Reader(after, after >= keptAfter);
+      readers.add(reader);
+      return reader;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void trim() {
+    long slowest = Long.MAX_VALUE;
+    for (Reader reader : readers) {
+      slowest = Math.min(slowest, reader.position);
+    }
+    if (slowest == Long.MAX_VALUE) {
+      if (!records.isEmpty()) {
+        keptAfter = Math.max(keptAfter, records.lastKey());
+      }
+      records.clear();
+    } else if (slowest > keptAfter) {
+      records.headMap(slowest, true).clear();
+      keptAfter = slowest;
+    }
+  }
+
+  final class Reader implements AutoCloseable {
+
+    private final boolean kept;
+    private long position;
+
+    private Reader(long position, boolean kept) {
+      this.position = position;
+      this.kept = kept;
+    }
+
+    // false when records after the opening sequence were dropped before it was opened
+    boolean kept() {
+      return kept;
+    }
+
+    long position() {
+      return position;
+    }
+
+    // for records the reader got elsewhere, such as a replay from the holder
+    void skipTo(long sequence) {
+      lock.lock();
+      try {
+        position = Math.max(position, sequence);
+        trim();
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    // copies the records after the position up to the visible sequence, waiting up to the timeout for one when there
+    // is none yet. Past a short batch every record up to the visible sequence was read, so the position moves there.
+    int read(LongSupplier visibleSequence, byte[][] batch, long timeoutMillis) throws InterruptedException {
+      lock.lock();
+      try {
+        long nanos = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        while (records.higherKey(position) == null && nanos > 0) {
+          nanos = appended.awaitNanos(nanos);
+        }
+        long visible = visibleSequence.getAsLong();
+        int count = 0;
+        if (visible > position) {
+          for (Map.Entry<Long, byte[]> record : records.subMap(position, false, visible, true).entrySet()) {
+            if (count == batch.length) {
+              break;
+            }
+            batch[count++] = record.getValue();
+            position = record.getKey();
+          }
+          if (count < batch.length) {
+            position = visible;
+          }
+        }
+        trim();
+        return count;
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    // records after the position that are not visible yet, their writes are about to end
+    boolean hasPending() {
+      lock.lock();
+      try {
+        return records.higherKey(position) != null;
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    @Override
+    public void close() {
+      lock.lock();
+      try {
+        readers.remove(this);
+        trim();
+      } finally {
+        lock.unlock();
+      }
+    }
+  }
+}
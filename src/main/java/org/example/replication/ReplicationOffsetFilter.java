@@ -0,0 +1,125 @@
+package org.example.replication;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+// The leader answers with the end of its log, followers can be asked to catch up to it. The header is set again on
+// every write until the response commits, so it covers whatever the request stored before its first bytes went out:
+// all of it for a whole answer, the chunks stored so far for a streamed batch larger than the response buffer.
+public class ReplicationOffsetFilter extends OncePerRequestFilter {
+
+  private final ReplicationLeader leader;
+
+  public ReplicationOffsetFilter(ReplicationLeader leader) {
+    this.leader = leader;
+  }
+
+  @Override
+  protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+      throws ServletException, IOException {
+    OffsetResponse offsetResponse = new OffsetResponse(response);
+    chain.doFilter(request, offsetResponse);
+    offsetResponse.setOffset();
+  }
+
+  private final class OffsetResponse extends HttpServletResponseWrapper {
+
+    private ServletOutputStream outputStream;
+
+    private OffsetResponse(HttpServletResponse response) {
+      super(response);
+    }
+
+    private void setOffset() {
+      if (!isCommitted()) {
+        setHeader(ReplicationProtocol.OFFSET_HEADER, Long.toString(leader.endOffset()));
+      }
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() throws IOException {
+      if (outputStream == null) {
+        outputStream = new OffsetOutputStream(this, super.getOutputStream());
+      }
+      return outputStream;
+    }
+
+    @Override
+    public PrintWriter getWriter() throws IOException {
+      setOffset();
+      return super.getWriter();
+    }
+
+    @Override
+    public void flushBuffer() throws IOException {
+      setOffset();
+      super.flushBuffer();
+    }
+
+    @Override
+    public void sendError(int status) throws IOException {
+      setOffset();
+      super.sendError(status);
+    }
+
+    @Override
+    public void sendError(int status, String message) throws IOException {
+      setOffset();
+      super.sendError(status, message);
+    }
+  }
+
+  private static final class OffsetOutputStream extends ServletOutputStream {
+
+    private final OffsetResponse response;
+    private final ServletOutputStream output;
+
+    private OffsetOutputStream(OffsetResponse response, ServletOutputStream output) {
+      this.response = response;
+      this.output = output;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      response.setOffset();
+      output.write(b);
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+      response.setOffset();
+      output.write(bytes, offset, length);
+    }
+
+    @Override
+    public void flush() throws IOException {
+      response.setOffset();
+      output.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+      response.setOffset();
+      output.close();
+    }
+
+    @Override
+    public boolean isReady() {
+      return output.isReady();
+    }
+
+    @Override
+    public void setWriteListener(WriteListener writeListener) {
+      output.setWriteListener(writeListener);
+    }
+  }
+}
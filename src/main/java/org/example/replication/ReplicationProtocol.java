@@ -0,0 +1,57 @@
+package org.example.replication;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.example.model.Transaction;
+
+// Frames are a kind byte and fixed width big endian fields, the same layout a DataInputStream reads back.
+// Offsets are the sequences the leader stored its mutations at, records go out in sequence order.
+// The follower opens with SUBSCRIBE, the leader answers with RESET when it cannot continue from the follower's offset
+// and then streams ADD and ROLLBACK records, each after its sequence. A HEARTBEAT after every batch and whenever the
+// leader is idle carries the offset everything was sent up to, across the sequences of failed writes, and the latest
+// offset of the leader.
+final class ReplicationProtocol {
+
+  static final String OFFSET_HEADER = "X-Replication-Offset";
+
+  static final byte SUBSCRIBE = 1;
+  static final byte RESET = 2;
+  static final byte ADD = 3;
+  static final byte ROLLBACK = 4;
+  static final byte HEARTBEAT = 5;
+
+  private ReplicationProtocol() {
+  }
+
+  static byte[] add(Transaction transaction) {
+    byte[] type = transaction.getType().getBytes(UTF_8);
+    return ByteBuffer.allocate(1 + Long.BYTES * 4 + 1 + Short.BYTES + type.length)
+        .put(ADD)
+        .putLong(transaction.getCreatedSequence())
+        .putLong(transaction.getId())
+        .putLong(transaction.getParentId())
+        .putLong(transaction.getAmountCents())
+        .put(transaction.getAmountScale())
+        .putShort((short) type.length)
+        .put(type)
+        .array();
+  }
+
+  static byte[] rollback(Transaction transaction) {
+    return ByteBuffer.allocate(1 + Long.BYTES * 2)
+        .put(ROLLBACK)
+        .putLong(transaction.getRollbackSequence())
+        .putLong(transaction.getId())
+        .array();
+  }
+
+  static String readType(DataInputStream input) throws IOException {
+    byte[] type = new byte[input.readUnsignedShort()];
+    input.readFully(type);
+    return new String(type, UTF_8);
+  }
+}
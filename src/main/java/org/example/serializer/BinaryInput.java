@@ -0,0 +1,76 @@
+package org.example.serializer;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+import org.example.exceptions.InvalidBinaryFormatException;
+
+// Reads through one buffer refilled from the stream, so decoding a value never allocates but for strings.
+public final class BinaryInput {
+
+  private static final int BUFFER_BYTES = 8192;
+
+  private final InputStream inputStream;
+  private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_BYTES).limit(0);
+
+  public BinaryInput(InputStream inputStream) {
+    this.inputStream = inputStream;
+  }
+
+  // true once the stream ended right at a value boundary
+  public boolean atEnd() throws IOException {
+    return !fill(1);
+  }
+
+  public byte readByte() throws IOException {
+    return require(1).get();
+  }
+
+  public int readInt() throws IOException {
+    return require(Integer.BYTES).getInt();
+  }
+
+  public long readLong() throws IOException {
+    return require(Long.BYTES).getLong();
+  }
+
+  public String readString() throws IOException {
+    int length = Short.toUnsignedInt(require(Short.BYTES).getShort());
+    byte[] bytes = new byte[length];
+    for (int offset = 0; offset < length; ) {
+      int chunk = Math.min(length - offset, require(1).remaining());
+      buffer.get(bytes, offset, chunk);
+      offset += chunk;
+    }
+    return new String(bytes, UTF_8);
+  }
+
+  private ByteBuffer require(int bytes) throws IOException {
+    if (!fill(bytes)) {
+      throw new InvalidBinaryFormatException("Binary body ended in the middle of a value");
+    }
+    return buffer;
+  }
+
+  private boolean fill(int bytes) throws IOException {
+    if (buffer.remaining() >= bytes) {
+      return true;
+    }
+    buffer.compact();
+    try {
+      while (buffer.position() < bytes) {
+        int read = inputStream.read(buffer.array(), buffer.position(), buffer.remaining());
+        if (read < 0) {
+          return false;
+        }
+        buffer.position(buffer.position() + read);
+      }
+      return true;
+    } finally {
+      buffer.flip();
+    }
+  }
+}
@@ -0,0 +1,85 @@
+package org.example.serializer;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Writes through one buffer that is handed to the stream whenever the next value does not fit.
+public final class BinaryOutput implements Flushable {
+
+  private static final int BUFFER_BYTES = 8192;
+  private static final int MAX_STRING_BYTES = 0xFFFF;
+  private static final Map<String, byte[]> encodedTypes = new ConcurrentHashMap<>();
+
+  private final OutputStream outputStream;
+  private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_BYTES);
+
+  public BinaryOutput(OutputStream outputStream) {
+    this.outputStream = outputStream;
+  }
+
+  public BinaryOutput writeByte(int value) throws IOException {
+    ensure(1).put((byte) value);
+    return this;
+  }
+
+  public BinaryOutput writeInt(int value) throws IOException {
+    ensure(Integer.BYTES).putInt(value);
+    return this;
+  }
+
+  public BinaryOutput writeLong(long value) throws IOException {
+    ensure(Long.BYTES).putLong(value);
+    return this;
+  }
+
+  public BinaryOutput writeAmount(long cents, int scale) throws IOException {
+    ensure(Long.BYTES + 1).putLong(cents).put((byte) scale);
+    return this;
+  }
+
+  // types are few and interned, so each one is encoded once
+  public BinaryOutput writeType(String type) throws IOException {
+    return writeBytes(encodedTypes.computeIfAbsent(type, key -> key.getBytes(UTF_8)));
+  }
+
+  public BinaryOutput writeString(String value) throws IOException {
+    return writeBytes(value.getBytes(UTF_8));
+  }
+
+  private BinaryOutput writeBytes(byte[] bytes) throws IOException {
+    if (bytes.length > MAX_STRING_BYTES) {
+      throw new IllegalArgumentException("String too long for the binary format: " + bytes.length + " bytes");
+    }
+    ensure(Short.BYTES).putShort((short) bytes.length);
+    for (int offset = 0; offset < bytes.length; ) {
+      int length = Math.min(bytes.length - offset, ensure(1).remaining());
+      buffer.put(bytes, offset, length);
+      offset += length;
+    }
+    return this;
+  }
+
+  @Override
+  public void flush() throws IOException {
+    drain();
+    outputStream.flush();
+  }
+
+  private ByteBuffer ensure(int bytes) throws IOException {
+    if (buffer.remaining() < bytes) {
+      drain();
+    }
+    return buffer;
+  }
+
+  private void drain() throws IOException {
+    outputStream.write(buffer.array(), 0, buffer.position());
+    buffer.clear();
+  }
+}
@@ -0,0 +1,25 @@
+package org.example.serializer;
+
+import java.math.BigDecimal;
+import java.util.Optional;
+
+import jakarta.validation.constraints.Positive;
+
+public class TransactionBatchRequest extends TransactionSerializerRequest {
+
+  @Positive
+  private long id;
+
+  public TransactionBatchRequest() {
+
+  }
+
+  public TransactionBatchRequest(long id, BigDecimal amount, String type, Optional<Long> parentId) {
+    super(amount, type, parentId);
+    this.id = id;
+  }
+
+  public long getId() {
+    return id;
+  }
+}
@@ -0,0 +1,61 @@
+package org.example.serializer;
+
+import static java.util.stream.Collectors.joining;
+
+import static org.springframework.http.HttpStatus.BAD_REQUEST;
+import static org.springframework.http.HttpStatus.CREATED;
+import static org.springframework.http.HttpStatus.INTERNAL_SERVER_ERROR;
+
+import java.util.Set;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import jakarta.validation.ConstraintViolation;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class TransactionBatchResponse {
+
+  private final long id;
+
+  private final int status;
+
+  private final String error;
+
+  public TransactionBatchResponse(long id, int status, String error) {
+    this.id = id;
+    this.status = status;
+    this.error = error;
+  }
+
+  public static TransactionBatchResponse created(long id) {
+    return new TransactionBatchResponse(id, CREATED.value(), null);
+  }
+
+  // same status and message a single request would have answered with
+  public static TransactionBatchResponse failed(long id, RuntimeException failure) {
+    ResponseStatus status = AnnotatedElementUtils.findMergedAnnotation(failure.getClass(), ResponseStatus.class);
+    return new TransactionBatchResponse(id, status == null ? INTERNAL_SERVER_ERROR.value() : status.code().value(),
+                                        failure.getMessage() != null ? failure.getMessage()
+                                                                     : failure.getClass().getSimpleName());
+  }
+
+  public static TransactionBatchResponse invalid(long id, Set<? extends ConstraintViolation<?>> violations) {
+    return new TransactionBatchResponse(id, BAD_REQUEST.value(), violations.stream()
+        .map(violation -> violation.getPropertyPath() + " " + violation.getMessage())
+        .sorted()
+        .collect(joining(", ")));
+  }
+
+  public long getId() {
+    return id;
+  }
+
+  public int getStatus() {
+    return status;
+  }
+
+  public String getError() {
+    return error;
+  }
+}
@@ -0,0 +1,173 @@
+package org.example.serializer;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+
+import org.example.exceptions.InvalidNumberFormatException;
+import org.example.model.Amounts;
+import org.example.model.Transaction;
+import org.springframework.http.MediaType;
+
+// Compact alternative to the json bodies, big endian. Amounts are the cents and the scale they were given with, strings
+// an unsigned short length and utf-8 bytes, lists an int count and their items, and a missing parent or cursor is 0.
+// A tree is written in pre-order, every node followed by its child count and then its children.
+public final class TransactionBinaryFormat {
+
+  public static final String MEDIA_TYPE_VALUE = "application/x-transactions-binary";
+  public static final MediaType MEDIA_TYPE = MediaType.parseMediaType(MEDIA_TYPE_VALUE);
+
+  // flags of a tree node
+  public static final int ACTIVE = 1;
+  public static final int TRUNCATED = 2;
+
+  private static final int INITIAL_DEPTH = 16;
+
+  private TransactionBinaryFormat() {
+  }
+
+  public static TransactionSerializerRequest readRequest(BinaryInput input) throws IOException {
+    BigDecimal amount = readAmount(input);
+    String type = input.readString();
+    return new TransactionSerializerRequest(amount, type, readParentId(input));
+  }
+
+  public static void writeRequest(TransactionSerializerRequest request, BinaryOutput output) throws IOException {
+    writeAmount(request.getAmount(), output);
+    output.writeType(request.getType());
+    output.writeLong(request.getParentId().orElse(Transaction.NO_PARENT));
+  }
+
+  public static TransactionBatchRequest readBatchRequest(BinaryInput input) throws IOException {
+    long id = input.readLong();
+    BigDecimal amount = readAmount(input);
+    String type = input.readString();
+    return new TransactionBatchRequest(id, amount, type, readParentId(input));
+  }
+
+  public static void writeBatchRequest(TransactionBatchRequest request, BinaryOutput output) throws IOException {
+    output.writeLong(request.getId());
+    writeRequest(request, output);
+  }
+
+  public static void writeBatchResponse(TransactionBatchResponse response, BinaryOutput output) throws IOException {
+    output.writeLong(response.getId()).writeInt(response.getStatus());
+    output.writeString(response.getError() == null ? "" : response.getError());
+  }
+
+  public static void writeResponse(TransactionSerializerResponse response, BinaryOutput output) throws IOException {
+    Deque<Iterator<TransactionSerializerResponse>> open = new ArrayDeque<>();
+    writeNode(response, output);
+    open.push(response.getChilds().iterator());
+    while (!open.isEmpty()) {
+      Iterator<TransactionSerializerResponse> childs = open.peek();
+      if (childs.hasNext()) {
+        TransactionSerializerResponse child = childs.next();
+        writeNode(child, output);
+        open.push(child.getChilds().iterator());
+      } else {
+        open.pop();
+      }
+    }
+  }
+
+  // the same tree straight from the model as it was at the sequence, nodes below maxDepth only give their child count
+  public static void writeTree(Transaction root, int maxDepth, long sequence, BinaryOutput output) throws IOException {
+    Transaction[] nodes = new Transaction[INITIAL_DEPTH];
+    int[] depths = new int[INITIAL_DEPTH];
+    boolean[] actives = new boolean[INITIAL_DEPTH];
+    nodes[0] = root;
+    actives[0] = root.isActiveAt(sequence);
+    int size = 1;
+    while (size > 0) {
+      Transaction node = nodes[--size];
+      int depth = depths[size];
+      boolean active = actives[size];
+      nodes[size] = null;
+      int childCount = sequence == Long.MAX_VALUE ? node.getChildCount() : node.getChildCountAt(sequence);
+      boolean truncated = depth >= maxDepth && childCount > 0;
+      output.writeLong(node.getId())
+          .writeLong(node.getParentId())
+          .writeAmount(node.getAmountCents(), node.getAmountScale())
+          .writeType(node.getType())
+          .writeByte((active ? ACTIVE : 0) | (truncated ? TRUNCATED : 0))
+          .writeInt(childCount);
+      if (truncated) {
+        continue;
+      }
+      if (size + childCount > nodes.length) {
+        int capacity = Math.max(nodes.length << 1, size + childCount);
+        nodes = Arrays.copyOf(nodes, capacity);
+        depths = Arrays.copyOf(depths, capacity);
+        actives = Arrays.copyOf(actives, capacity);
+      }
+      for (int i = childCount - 1; i >= 0; i--) {
+        Transaction child = node.getChild(i);
+        nodes[size] = child;
+        depths[size] = depth + 1;
+        actives[size++] = active && !child.isRollbackRootAt(sequence);
+      }
+    }
+  }
+
+  public static void writeSum(SumSerializer sum, BinaryOutput output) throws IOException {
+    writeAmount(sum.getSum(), output);
+  }
+
+  public static void writeIds(List<Long> ids, BinaryOutput output) throws IOException {
+    output.writeInt(ids.size());
+    for (int i = 0; i < ids.size(); i++) {
+      output.writeLong(ids.get(i));
+    }
+  }
+
+  public static void writePage(TypePageSerializer page, BinaryOutput output) throws IOException {
+    writeIds(page.getIds(), output);
+    output.writeLong(page.getNextAfter() == null ? Transaction.NO_PARENT : page.getNextAfter());
+  }
+
+  public static void writeTotals(TypeTotalsSerializer totals, BinaryOutput output) throws IOException {
+    output.writeType(totals.getType()).writeLong(totals.getCount()).writeLong(totals.getActiveCount());
+    writeAmount(totals.getActiveSum(), output);
+  }
+
+  public static void writeTotals(List<TypeTotalsSerializer> totals, BinaryOutput output) throws IOException {
+    output.writeInt(totals.size());
+    for (TypeTotalsSerializer typeTotals : totals) {
+      writeTotals(typeTotals, output);
+    }
+  }
+
+  public static BigDecimal readAmount(BinaryInput input) throws IOException {
+    long cents = input.readLong();
+    int scale = input.readByte();
+    try {
+      return Amounts.fromCents(cents, scale);
+    } catch (ArithmeticException e) {
+      throw new InvalidNumberFormatException();
+    }
+  }
+
+  private static void writeNode(TransactionSerializerResponse node, BinaryOutput output) throws IOException {
+    output.writeLong(node.getId())
+        .writeLong(node.getParentId().orElse(Transaction.NO_PARENT));
+    writeAmount(node.getAmount(), output);
+    output.writeType(node.getType())
+        .writeByte(node.isActive() ? ACTIVE : 0)
+        .writeInt(node.getChilds().size());
+  }
+
+  private static void writeAmount(BigDecimal amount, BinaryOutput output) throws IOException {
+    output.writeAmount(Amounts.toCents(amount), amount.scale());
+  }
+
+  private static Optional<Long> readParentId(BinaryInput input) throws IOException {
+    long parentId = input.readLong();
+    return parentId == Transaction.NO_PARENT ? Optional.empty() : Optional.of(parentId);
+  }
+}
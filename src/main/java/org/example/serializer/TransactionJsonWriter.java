@@ -0,0 +1,99 @@
+package org.example.serializer;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.example.model.Transaction;
+
+// writes the same json as TransactionSerializerResponse straight from the model, keeping only the open path in memory
+public final class TransactionJsonWriter {
+
+  public static final int UNLIMITED_DEPTH = Integer.MAX_VALUE;
+
+  private static final int INITIAL_DEPTH = 16;
+
+  private final int maxDepth;
+  private final long sequence;
+  private Transaction[] path = new Transaction[INITIAL_DEPTH];
+  private int[] nextChild = new int[INITIAL_DEPTH];
+  // whether each node of the path is active, only rollbacked transactions are marked so it is inherited down the path
+  private boolean[] active = new boolean[INITIAL_DEPTH];
+  private int top;
+  private boolean started;
+
+  public TransactionJsonWriter(Transaction root, int maxDepth) {
+    this(root, maxDepth, Long.MAX_VALUE);
+  }
+
+  // the tree as it was at the sequence
+  public TransactionJsonWriter(Transaction root, int maxDepth, long sequence) {
+    this.maxDepth = maxDepth;
+    this.sequence = sequence;
+    this.path[0] = root;
+  }
+
+  public static void write(Transaction root, int maxDepth, JsonGenerator generator) throws IOException {
+    write(root, maxDepth, Long.MAX_VALUE, generator);
+  }
+
+  public static void write(Transaction root, int maxDepth, long sequence, JsonGenerator generator) throws IOException {
+    new TransactionJsonWriter(root, maxDepth, sequence).write(generator, Integer.MAX_VALUE);
+  }
+
+  // writes at most maxSteps node starts and ends, so a caller can emit the tree in chunks; false once it is complete
+  public boolean write(JsonGenerator generator, int maxSteps) throws IOException {
+    if (!started) {
+      started = true;
+      active[0] = path[0].isActiveAt(sequence);
+      writeStart(path[0], generator);
+    }
+    for (int steps = 0; top >= 0 && steps < maxSteps; steps++) {
+      Transaction node = path[top];
+      if (top < maxDepth && nextChild[top] < childCount(node)) {
+        Transaction child = node.getChild(nextChild[top]++);
+        if (++top == path.length) {
+          path = Arrays.copyOf(path, top << 1);
+          nextChild = Arrays.copyOf(nextChild, top << 1);
+          active = Arrays.copyOf(active, top << 1);
+        }
+        path[top] = child;
+        nextChild[top] = 0;
+        active[top] = active[top - 1] && !child.isRollbackRootAt(sequence);
+        writeStart(child, generator);
+      } else {
+        writeEnd(node, active[top], top >= maxDepth, generator);
+        path[top--] = null;
+      }
+    }
+    return top >= 0;
+  }
+
+  private int childCount(Transaction transaction) {
+    return sequence == Long.MAX_VALUE ? transaction.getChildCount() : transaction.getChildCountAt(sequence);
+  }
+
+  private static void writeStart(Transaction transaction, JsonGenerator generator) throws IOException {
+    generator.writeStartObject();
+    generator.writeNumberField("amount", transaction.getAmount());
+    generator.writeStringField("type", transaction.getType());
+    generator.writeNumberField("id", transaction.getId());
+    generator.writeArrayFieldStart("childs");
+  }
+
+  private void writeEnd(Transaction transaction, boolean active, boolean truncated, JsonGenerator generator)
+      throws IOException {
+    generator.writeEndArray();
+    int childCount = childCount(transaction);
+    if (truncated && childCount > 0) {
+      generator.writeNumberField("child_count", childCount);
+    }
+    generator.writeBooleanField("active", active);
+    if (transaction.hasParent()) {
+      generator.writeNumberField("parent_id", transaction.getParentId());
+    } else {
+      generator.writeNullField("parent_id");
+    }
+    generator.writeEndObject();
+  }
+}
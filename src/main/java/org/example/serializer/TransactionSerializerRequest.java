@@ -32,7 +32,7 @@ public class TransactionSerializerRequest {
   public TransactionSerializerRequest(Transaction transaction) {
     this.amount = transaction.getAmount();
     this.type = transaction.getType();
-    this.parentId = transaction.getParentId();
+    this.parentId = transaction.hasParent() ? Optional.of(transaction.getParentId()) : empty();
   }
 
   public TransactionSerializerRequest(BigDecimal amount, String type, Optional<Long> parentId) {
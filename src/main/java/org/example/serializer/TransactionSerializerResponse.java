@@ -3,11 +3,12 @@ package org.example.serializer;
 import static java.util.Optional.empty;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
-import java.util.stream.Collectors;
 
 import org.example.model.Transaction;
+import org.example.model.TransactionTraversal;
 
 public class TransactionSerializerResponse extends TransactionSerializerRequest {
 
@@ -20,10 +21,26 @@ public class TransactionSerializerResponse extends TransactionSerializerRequest
   public TransactionSerializerResponse() {}
 
   public TransactionSerializerResponse(Transaction transaction) {
+    this(transaction, Long.MAX_VALUE);
+  }
+
+  // the tree as it was at the sequence, whatever was stored or rollbacked after it is left out
+  public TransactionSerializerResponse(Transaction transaction, long sequence) {
+    this(transaction, transaction.isActiveAt(sequence), transaction.getChildCount());
+    // a child is active unless its parent is not or it was rollbacked itself
+    TransactionTraversal.get().visitDescendants(transaction, this, sequence, (child, parent) -> {
+      boolean active = parent.isActive && !child.isRollbackRootAt(sequence);
+      TransactionSerializerResponse response = new TransactionSerializerResponse(child, active, child.getChildCount());
+      parent.childs.add(response);
+      return response;
+    });
+  }
+
+  private TransactionSerializerResponse(Transaction transaction, boolean isActive, int expectedChilds) {
     super(transaction);
     this.id = transaction.getId();
-    this.isActive = transaction.isActive();
-    childs = transaction.getChilds().stream().map(TransactionSerializerResponse::new).collect(Collectors.toList());
+    this.isActive = isActive;
+    this.childs = new ArrayList<>(expectedChilds);
   }
 
   public long getId() {
@@ -0,0 +1,40 @@
+package org.example.serializer;
+
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import org.example.exceptions.InvalidLimitException;
+
+public class TypePageSerializer {
+
+  private final List<Long> ids;
+
+  @JsonProperty("next_after")
+  private final Long nextAfter;
+
+  public TypePageSerializer(List<Long> ids, Long nextAfter) {
+    this.ids = ids;
+    this.nextAfter = nextAfter;
+  }
+
+  public static final int MAX_PAGE_SIZE = 10_000;
+
+  // the first limit ids of the range, with the cursor of the next page when something is left; an empty page would
+  // read as the end of the listing, so a limit that cannot hold an id is refused
+  public static TypePageSerializer of(List<Long> ids, int limit) {
+    if (limit <= 0) {
+      throw new InvalidLimitException(limit);
+    }
+    List<Long> page = ids.subList(0, Math.min(limit, Math.min(ids.size(), MAX_PAGE_SIZE)));
+    Long nextAfter = !page.isEmpty() && page.size() < ids.size() ? page.get(page.size() - 1) : null;
+    return new TypePageSerializer(page, nextAfter);
+  }
+
+  public List<Long> getIds() {
+    return ids;
+  }
+
+  public Long getNextAfter() {
+    return nextAfter;
+  }
+}
@@ -0,0 +1,41 @@
+package org.example.serializer;
+
+import java.math.BigDecimal;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+public class TypeTotalsSerializer {
+
+  private final String type;
+
+  private final long count;
+
+  @JsonProperty("active_count")
+  private final long activeCount;
+
+  @JsonProperty("active_sum")
+  private final BigDecimal activeSum;
+
+  public TypeTotalsSerializer(String type, long count, long activeCount, BigDecimal activeSum) {
+    this.type = type;
+    this.count = count;
+    this.activeCount = activeCount;
+    this.activeSum = activeSum;
+  }
+
+  public String getType() {
+    return type;
+  }
+
+  public long getCount() {
+    return count;
+  }
+
+  public long getActiveCount() {
+    return activeCount;
+  }
+
+  public BigDecimal getActiveSum() {
+    return activeSum;
+  }
+}
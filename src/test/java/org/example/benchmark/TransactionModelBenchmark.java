@@ -0,0 +1,109 @@
+package org.example.benchmark;
+
+import static java.util.Collections.synchronizedList;
+
+import java.math.BigDecimal;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.example.model.Amounts;
+import org.example.model.Transaction;
+import org.example.model.TransactionTraversal;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Compares the compact model against the previous BigDecimal/Optional/LinkedList layout.
+// Run with -prof gc: gc.alloc.rate.norm of the create benchmarks is the footprint of one transaction.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class TransactionModelBenchmark {
+
+  private static final BigDecimal AMOUNT = new BigDecimal("100.11");
+  private static final String TYPE = "Shopping";
+
+  @Param({"1000", "100000"})
+  public int childs;
+
+  private Transaction compactRoot;
+  private LegacyTransaction legacyRoot;
+  private long nextId;
+
+  @Setup
+  public void setUp() {
+    compactRoot = new Transaction(1, AMOUNT, TYPE);
+    legacyRoot = new LegacyTransaction(1, AMOUNT, TYPE, Optional.empty());
+    for (long id = 2; id <= childs + 1; id++) {
+      Transaction child = new Transaction(id, AMOUNT, TYPE, 1);
+      child.setParent(compactRoot);
+      compactRoot.addChild(child);
+      legacyRoot.childs.add(new LegacyTransaction(id, AMOUNT, TYPE, Optional.of(1L)));
+    }
+    nextId = childs + 2;
+  }
+
+  @Benchmark
+  public long sumCompact() {
+    long[] sum = new long[1];
+    TransactionTraversal.get().visitActive(compactRoot, node -> sum[0] = Amounts.add(sum[0], node.getAmountCents()));
+    return sum[0];
+  }
+
+  @Benchmark
+  public BigDecimal sumLegacy() {
+    return legacyRoot.sum();
+  }
+
+  @Benchmark
+  public Transaction createCompact() {
+    return new Transaction(nextId++, AMOUNT, TYPE, 1);
+  }
+
+  @Benchmark
+  public LegacyTransaction createLegacy() {
+    return new LegacyTransaction(nextId++, AMOUNT, TYPE, Optional.of(1L));
+  }
+
+  public static class LegacyTransaction {
+
+    private final long id;
+    private final Optional<Long> parentId;
+    private final BigDecimal amount;
+    private final List<LegacyTransaction> childs = synchronizedList(new LinkedList<>());
+    private final String type;
+    private final AtomicBoolean isActive = new AtomicBoolean(true);
+
+    LegacyTransaction(long id, BigDecimal amount, String type, Optional<Long> parentId) {
+      this.id = id;
+      this.amount = amount;
+      this.type = type;
+      this.parentId = parentId;
+    }
+
+    BigDecimal sum() {
+      if (!isActive.get()) {
+        return BigDecimal.ZERO;
+      }
+      BigDecimal sum = amount;
+      for (LegacyTransaction child : childs) {
+        sum = sum.add(child.sum());
+      }
+      return sum;
+    }
+  }
+}
@@ -0,0 +1,89 @@
+package org.example.benchmark;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jdk8.Jdk8Module;
+import org.example.model.Transaction;
+import org.example.serializer.TransactionJsonWriter;
+import org.example.serializer.TransactionSerializerResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+// GET /transactions/{id} body: the response object tree written by Jackson against the streaming writer.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(4)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class TransactionSerializationBenchmark {
+
+  private static final BigDecimal AMOUNT = new BigDecimal("100.11");
+  private static final String TYPE = "Shopping";
+
+  @Param({"10", "1000", "100000"})
+  public int descendants;
+
+  @Param({"2", "64"})
+  public int fanOut;
+
+  private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new Jdk8Module());
+  private final OutputStream discard = new OutputStream() {
+    @Override
+    public void write(int b) {
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) {
+    }
+  };
+  private Transaction root;
+
+  @Setup
+  public void setUp() {
+    Transaction[] created = new Transaction[descendants + 1];
+    created[0] = root = new Transaction(1, AMOUNT, TYPE);
+    for (int i = 1; i <= descendants; i++) {
+      Transaction parent = created[(i - 1) / fanOut];
+      Transaction child = new Transaction(i + 1, AMOUNT, TYPE, parent.getId());
+      child.setParent(parent);
+      parent.addChild(child);
+      created[i] = child;
+    }
+  }
+
+  @Benchmark
+  public void responseObject() throws IOException {
+    objectMapper.writeValue(discard, new TransactionSerializerResponse(root));
+  }
+
+  @Benchmark
+  public void streamingWriter() throws IOException {
+    try (JsonGenerator generator = objectMapper.getFactory().createGenerator(discard)) {
+      TransactionJsonWriter.write(root, TransactionJsonWriter.UNLIMITED_DEPTH, generator);
+    }
+  }
+
+  @Benchmark
+  public void streamingWriterFirstLevel() throws IOException {
+    try (JsonGenerator generator = objectMapper.getFactory().createGenerator(discard)) {
+      TransactionJsonWriter.write(root, 1, generator);
+    }
+  }
+}
@@ -0,0 +1,125 @@
+package org.example.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.datatype.jdk8.Jdk8Module;
+import org.example.model.Transaction;
+import org.example.serializer.BinaryInput;
+import org.example.serializer.BinaryOutput;
+import org.example.serializer.TransactionBinaryFormat;
+import org.example.serializer.TransactionJsonWriter;
+import org.example.serializer.TransactionSerializerRequest;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+// PUT bodies read and GET /transactions/{id} bodies written as json against TransactionBinaryFormat. Throughput is the
+// requests per second a core can encode or decode; the wireBytes counter divided by the ops is the body size.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(4)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class TransactionWireFormatBenchmark {
+
+  private static final BigDecimal AMOUNT = new BigDecimal("100.11");
+  private static final String TYPE = "Shopping";
+
+  @Param({"1", "100", "10000"})
+  public int descendants;
+
+  private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new Jdk8Module());
+  private final ObjectReader requestReader = objectMapper.readerFor(TransactionSerializerRequest.class);
+  private Transaction root;
+  private byte[] jsonRequest;
+  private byte[] binaryRequest;
+
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.EVENTS)
+  public static class WireBytes extends OutputStream {
+
+    public long wireBytes;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+      wireBytes = 0;
+    }
+
+    @Override
+    public void write(int b) {
+      wireBytes++;
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) {
+      wireBytes += length;
+    }
+  }
+
+  @Setup
+  public void setUp() throws IOException {
+    Transaction[] created = new Transaction[descendants + 1];
+    created[0] = root = new Transaction(1, AMOUNT, TYPE);
+    for (int i = 1; i <= descendants; i++) {
+      Transaction parent = created[(i - 1) / 8];
+      Transaction child = new Transaction(i + 1, AMOUNT, TYPE, parent.getId());
+      child.setParent(parent);
+      parent.addChild(child);
+      created[i] = child;
+    }
+
+    TransactionSerializerRequest request = new TransactionSerializerRequest(AMOUNT, TYPE, Optional.of(1L));
+    jsonRequest = objectMapper.writeValueAsBytes(request);
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    BinaryOutput output = new BinaryOutput(bytes);
+    TransactionBinaryFormat.writeRequest(request, output);
+    output.flush();
+    binaryRequest = bytes.toByteArray();
+  }
+
+  @Benchmark
+  public TransactionSerializerRequest readJsonRequest() throws IOException {
+    return requestReader.readValue(jsonRequest);
+  }
+
+  @Benchmark
+  public TransactionSerializerRequest readBinaryRequest() throws IOException {
+    return TransactionBinaryFormat.readRequest(new BinaryInput(new ByteArrayInputStream(binaryRequest)));
+  }
+
+  @Benchmark
+  public void writeJsonTree(WireBytes wire) throws IOException {
+    try (JsonGenerator generator = objectMapper.getFactory().createGenerator(wire)) {
+      TransactionJsonWriter.write(root, TransactionJsonWriter.UNLIMITED_DEPTH, generator);
+    }
+  }
+
+  @Benchmark
+  public void writeBinaryTree(WireBytes wire) throws IOException {
+    BinaryOutput output = new BinaryOutput(wire);
+    TransactionBinaryFormat.writeTree(root, TransactionJsonWriter.UNLIMITED_DEPTH, Long.MAX_VALUE, output);
+    output.flush();
+  }
+}
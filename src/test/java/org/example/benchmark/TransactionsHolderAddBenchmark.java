@@ -0,0 +1,84 @@
+package org.example.benchmark;
+
+import static java.util.Optional.empty;
+import static java.util.Optional.of;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.example.persistance.TransactionsHolder;
+import org.example.serializer.TransactionSerializerRequest;
+import org.example.serializer.TransactionSerializerResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+// addTransaction under contention: every thread on one flat tree, every thread growing its own chain inside one
+// tree, or every thread on its own trees. Override the thread count with -t, allocation shows up with -prof gc.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(4)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class TransactionsHolderAddBenchmark {
+
+  private static final BigDecimal AMOUNT = new BigDecimal("100.11");
+  private static final String TYPE = "Shopping";
+  private static final long ROOT_ID = 1;
+
+  @Param({"flat", "deep", "forest"})
+  public String shape;
+
+  private final TransactionsHolder transactionsHolder = TransactionsHolder.get();
+  private final AtomicLong ids = new AtomicLong();
+
+  @State(Scope.Thread)
+  public static class Chain {
+
+    private long lastId = ROOT_ID;
+  }
+
+  // a fresh holder for each iteration keeps the heap from growing across the run
+  @Setup(Level.Iteration)
+  public void setUp() {
+    transactionsHolder.clearTransactionMap();
+    ids.set(ROOT_ID);
+    transactionsHolder.addTransaction(ROOT_ID, new TransactionSerializerRequest(AMOUNT, TYPE, empty()));
+  }
+
+  @Setup(Level.Iteration)
+  public void resetChain(Chain chain) {
+    chain.lastId = ROOT_ID;
+  }
+
+  @Benchmark
+  public TransactionSerializerResponse addTransaction(Chain chain) {
+    long id = ids.incrementAndGet();
+    TransactionSerializerRequest request;
+    switch (shape) {
+      case "flat":
+        request = new TransactionSerializerRequest(AMOUNT, TYPE, of(ROOT_ID));
+        break;
+      case "deep":
+        request = new TransactionSerializerRequest(AMOUNT, TYPE, of(chain.lastId));
+        break;
+      default:
+        request = new TransactionSerializerRequest(AMOUNT, TYPE, empty());
+    }
+    chain.lastId = id;
+    return transactionsHolder.addTransaction(id, request);
+  }
+}
@@ -0,0 +1,113 @@
+package org.example.benchmark;
+
+import static java.util.Optional.empty;
+import static java.util.Optional.of;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.example.persistance.TransactionsHolder;
+import org.example.serializer.TransactionSerializerRequest;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+// getSum and getIdsByType on a tree of the given depth and fan-out, read by several threads at once.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(4)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class TransactionsHolderReadBenchmark {
+
+  private static final BigDecimal AMOUNT = new BigDecimal("100.11");
+  private static final String HOT_TYPE = "Shopping";
+  private static final String COLD_TYPE = "Cars";
+  private static final int PAGE = 100;
+
+  @Param({"1", "8", "64"})
+  public int depth;
+
+  @Param({"2", "16"})
+  public int fanOut;
+
+  @Param({"100000"})
+  public int transactions;
+
+  private final TransactionsHolder transactionsHolder = TransactionsHolder.get();
+  private long deepestId;
+  private long middleId;
+  private long hotCursorId;
+
+  @Setup
+  public void setUp() {
+    transactionsHolder.clearTransactionMap();
+    long nextId = 1;
+    transactionsHolder.addTransaction(nextId++, new TransactionSerializerRequest(AMOUNT, HOT_TYPE, empty()));
+    long levelStart = 1;
+    long levelEnd = 1;
+    middleId = 1;
+    for (int level = 1; level < depth && nextId <= transactions; level++) {
+      long nextLevelStart = nextId;
+      for (long parent = levelStart; parent <= levelEnd && nextId <= transactions; parent++) {
+        for (int child = 0; child < fanOut && nextId <= transactions; child++) {
+          String type = nextId % 10 == 0 ? COLD_TYPE : HOT_TYPE;
+          transactionsHolder.addTransaction(nextId++, new TransactionSerializerRequest(AMOUNT, type, of(parent)));
+        }
+      }
+      levelStart = nextLevelStart;
+      levelEnd = nextId - 1;
+      if (level == depth / 2) {
+        middleId = levelStart;
+      }
+    }
+    // whatever does not fit in the tree becomes flat roots, so every combination holds the same number of ids
+    while (nextId <= transactions) {
+      transactionsHolder.addTransaction(nextId++, new TransactionSerializerRequest(AMOUNT, HOT_TYPE, empty()));
+    }
+    deepestId = levelEnd;
+    hotCursorId = transactions / 2 % 10 == 0 ? transactions / 2 + 1 : transactions / 2;
+  }
+
+  @Benchmark
+  public BigDecimal getSumOfRoot() {
+    return transactionsHolder.getSum(1);
+  }
+
+  @Benchmark
+  public BigDecimal getSumOfInnerTransaction() {
+    return transactionsHolder.getSum(middleId);
+  }
+
+  @Benchmark
+  public BigDecimal getSumOfLeaf() {
+    return transactionsHolder.getSum(deepestId);
+  }
+
+  @Benchmark
+  public void getIdsByHotType(Blackhole blackhole) {
+    List<Long> ids = transactionsHolder.getIdsByType(HOT_TYPE);
+    for (int i = 0; i < ids.size(); i++) {
+      blackhole.consume(ids.get(i));
+    }
+  }
+
+  @Benchmark
+  public List<Long> getIdsByHotTypePage() {
+    List<Long> ids = transactionsHolder.getIdsByType(HOT_TYPE, hotCursorId);
+    return ids.subList(0, Math.min(PAGE, ids.size()));
+  }
+}
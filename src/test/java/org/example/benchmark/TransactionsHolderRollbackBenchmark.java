@@ -0,0 +1,76 @@
+package org.example.benchmark;
+
+import static java.util.Optional.empty;
+import static java.util.Optional.of;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.example.persistance.TransactionsHolder;
+import org.example.serializer.TransactionSerializerRequest;
+import org.example.serializer.TransactionSerializerResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+// rollbackTransaction of a subtree with the given number of direct childs. Every thread rolls back its own subtree,
+// all of them hanging from one shared root so they contend on the same tree lock.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(4)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class TransactionsHolderRollbackBenchmark {
+
+  private static final BigDecimal AMOUNT = new BigDecimal("100.11");
+  private static final String TYPE = "Shopping";
+  private static final long ROOT_ID = 1;
+
+  @Param({"100", "10000"})
+  public int width;
+
+  private final TransactionsHolder transactionsHolder = TransactionsHolder.get();
+  private final AtomicLong ids = new AtomicLong();
+
+  @State(Scope.Thread)
+  public static class Subtree {
+
+    private long rootId;
+  }
+
+  @Setup(Level.Iteration)
+  public void setUp() {
+    transactionsHolder.clearTransactionMap();
+    ids.set(ROOT_ID);
+    transactionsHolder.addTransaction(ROOT_ID, new TransactionSerializerRequest(AMOUNT, TYPE, empty()));
+  }
+
+  // the subtree built here is not measured, only its rollback is
+  @Setup(Level.Invocation)
+  public void createSubtree(Subtree subtree) {
+    subtree.rootId = ids.incrementAndGet();
+    transactionsHolder.addTransaction(subtree.rootId, new TransactionSerializerRequest(AMOUNT, TYPE, of(ROOT_ID)));
+    for (int i = 0; i < width; i++) {
+      transactionsHolder.addTransaction(ids.incrementAndGet(), new TransactionSerializerRequest(AMOUNT, TYPE,
+                                                                                               of(subtree.rootId)));
+    }
+  }
+
+  @Benchmark
+  public TransactionSerializerResponse rollbackTransaction(Subtree subtree) {
+    return transactionsHolder.rollbackTransaction(subtree.rootId);
+  }
+}
@@ -0,0 +1,116 @@
+package org.example.cache;
+
+import static java.util.Optional.empty;
+import static java.util.Optional.of;
+
+import static org.example.util.Util.DEFAULT_AMOUNT;
+import static org.example.util.Util.DEFAULT_TYPE;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.util.Optional;
+
+import org.example.cache.ResponseCache.Kind;
+import org.example.model.Transaction;
+import org.example.persistance.MutationListener;
+import org.example.persistance.TransactionsHolder;
+import org.example.serializer.TransactionSerializerRequest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ResponseCacheTestCase {
+
+  private static final byte[] BODY = {1, 2, 3};
+
+  private final TransactionsHolder transactionsHolder = TransactionsHolder.get();
+  private final ResponseCache responseCache = new ResponseCache(1 << 20, 1024);
+
+  @Before
+  public void before() {
+    transactionsHolder.clearTransactionMap();
+    transactionsHolder.invalidateOnMutations(responseCache);
+  }
+
+  @After
+  public void after() {
+    transactionsHolder.invalidateOnMutations(MutationListener.NONE);
+    transactionsHolder.clearTransactionMap();
+  }
+
+  @Test
+  public void addDropsTheEntriesOfTheAncestorsOnly() {
+    add(1, empty());
+    add(2, of(1L));
+    add(3, of(1L));
+    cache(1, Kind.TREE);
+    cache(2, Kind.SUM);
+    cache(3, Kind.TREE);
+
+    add(4, of(2L));
+
+    assertThat(responseCache.get(transaction(1), Kind.TREE), nullValue());
+    assertThat(responseCache.get(transaction(2), Kind.SUM), nullValue());
+    assertThat(responseCache.get(transaction(3), Kind.TREE), is(BODY));
+    assertThat(responseCache.hits(), is(1L));
+    assertThat(responseCache.misses(), is(2L));
+  }
+
+  @Test
+  public void rollbackOfAnAncestorMakesTheEntriesBelowItStale() {
+    add(1, empty());
+    add(2, of(1L));
+    add(3, of(2L));
+    cache(3, Kind.SUM);
+
+    transactionsHolder.rollbackTransaction(1);
+
+    assertThat(responseCache.get(transaction(3), Kind.SUM), nullValue());
+    assertThat(responseCache.size(), is(0L));
+  }
+
+  @Test
+  public void bodiesReadBeforeAChangeAreNotKept() {
+    add(1, empty());
+    long readSequence = transactionsHolder.visibleSequence();
+    add(2, of(1L));
+
+    responseCache.put(transaction(1), readSequence, Kind.TREE, BODY);
+
+    assertThat(responseCache.get(transaction(1), Kind.TREE), nullValue());
+  }
+
+  @Test
+  public void coldIdsDoNotEvictAHotOne() {
+    // 16 segments of 256 bytes, one entry each
+    ResponseCache small = new ResponseCache(16 * 256, 128);
+    long readSequence = transactionsHolder.visibleSequence();
+    Transaction hot = new Transaction(1, DEFAULT_AMOUNT, DEFAULT_TYPE);
+    for (int i = 0; i < 8; i++) {
+      small.get(hot, Kind.TREE);
+    }
+    small.put(hot, readSequence, Kind.TREE, new byte[128]);
+
+    for (long id = 2; id < 2_000; id++) {
+      Transaction cold = new Transaction(id, DEFAULT_AMOUNT, DEFAULT_TYPE);
+      small.get(cold, Kind.TREE);
+      small.put(cold, readSequence, Kind.TREE, new byte[128]);
+    }
+
+    assertThat(small.get(hot, Kind.TREE).length, is(128));
+    assertThat(small.rejections() > 0, is(true));
+  }
+
+  private void add(long id, Optional<Long> parentId) {
+    transactionsHolder.addTransaction(id, new TransactionSerializerRequest(DEFAULT_AMOUNT, DEFAULT_TYPE, parentId));
+  }
+
+  private void cache(long id, Kind kind) {
+    responseCache.put(transaction(id), transactionsHolder.visibleSequence(), kind, BODY);
+  }
+
+  private Transaction transaction(long id) {
+    return transactionsHolder.findTransaction(id).orElseThrow();
+  }
+}
@@ -0,0 +1,92 @@
+package org.example.controller;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Optional.empty;
+import static java.util.Optional.of;
+
+import static org.example.util.Util.DEFAULT_AMOUNT;
+import static org.example.util.Util.DEFAULT_TYPE;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.List;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.Validation;
+import jakarta.validation.ValidatorFactory;
+import org.example.cache.ResponseCache;
+import org.example.exceptions.InvalidLimitException;
+import org.example.persistance.TransactionIngestPipeline;
+import org.example.persistance.TransactionsHolder;
+import org.example.serializer.TransactionSerializerRequest;
+import org.example.serializer.TypePageSerializer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+public class TransactionControllerTestCase {
+
+  private final TransactionsHolder transactionsHolder = TransactionsHolder.get();
+  private ValidatorFactory validatorFactory;
+  private TransactionController controller;
+
+  @Before
+  public void before() {
+    transactionsHolder.clearTransactionMap();
+    validatorFactory = Validation.buildDefaultValidatorFactory();
+    StaticListableBeanFactory beans = new StaticListableBeanFactory();
+    controller = new TransactionController(new ObjectMapper(), validatorFactory.getValidator(),
+                                           beans.getBeanProvider(TransactionIngestPipeline.class),
+                                           beans.getBeanProvider(ResponseCache.class));
+    for (long id = 1; id <= 3; id++) {
+      transactionsHolder.addTransaction(id, new TransactionSerializerRequest(DEFAULT_AMOUNT, DEFAULT_TYPE, empty()));
+    }
+  }
+
+  @After
+  public void after() {
+    validatorFactory.close();
+    transactionsHolder.clearTransactionMap();
+  }
+
+  @Test
+  public void pageByTypeAnswersTheCursorOfTheNextPage() {
+    TypePageSerializer page = controller.getPageByType(DEFAULT_TYPE, 0, 2).getBody();
+
+    assertThat(page.getIds(), is(List.of(1L, 2L)));
+    assertThat(page.getNextAfter(), is(2L));
+  }
+
+  @Test
+  public void sumKeepsTheScaleOfTheAmounts() throws IOException {
+    transactionsHolder.addTransaction(10,
+                                      new TransactionSerializerRequest(new BigDecimal("10.50"), DEFAULT_TYPE, empty()));
+    assertThat(new String(controller.getSum(10).getBody(), UTF_8), is("{\"sum\":10.50}"));
+
+    transactionsHolder.addTransaction(11,
+                                      new TransactionSerializerRequest(new BigDecimal("1.10"), DEFAULT_TYPE, of(10L)));
+    transactionsHolder.addTransaction(12, new TransactionSerializerRequest(new BigDecimal("2"), DEFAULT_TYPE, of(11L)));
+    assertThat(new String(controller.getSum(10).getBody(), UTF_8), is("{\"sum\":13.60}"));
+    assertThat(new String(controller.getSum(12).getBody(), UTF_8), is("{\"sum\":2}"));
+  }
+
+  @Test(expected = InvalidLimitException.class)
+  public void pageByTypeRejectsAZeroLimit() {
+    controller.getPageByType(DEFAULT_TYPE, 0, 0);
+  }
+
+  @Test(expected = InvalidLimitException.class)
+  public void pageByTypeRejectsANegativeLimit() {
+    controller.getPageByType(DEFAULT_TYPE, 0, -1);
+  }
+
+  @Test
+  public void invalidLimitIsABadRequest() {
+    assertThat(InvalidLimitException.class.getAnnotation(ResponseStatus.class).value(), is(HttpStatus.BAD_REQUEST));
+  }
+}
@@ -0,0 +1,137 @@
+package org.example.listener;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+
+import jakarta.validation.Validation;
+import jakarta.validation.ValidatorFactory;
+import org.example.model.Transaction;
+import org.example.persistance.TransactionsHolder;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class IngestListenerTestCase {
+
+  private static final byte[] CARS = "cars".getBytes(UTF_8);
+
+  private final TransactionsHolder transactionsHolder = TransactionsHolder.get();
+  private ValidatorFactory validatorFactory;
+  private IngestListener listener;
+  private SocketChannel channel;
+
+  @Before
+  public void setUp() throws IOException {
+    transactionsHolder.clearTransactionMap();
+    validatorFactory = Validation.buildDefaultValidatorFactory();
+    listener = new IngestListener(transactionsHolder, validatorFactory.getValidator(), 0, 1, false);
+    channel = SocketChannel.open(new InetSocketAddress("localhost", listener.port()));
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    channel.close();
+    listener.close();
+    validatorFactory.close();
+    transactionsHolder.clearTransactionMap();
+  }
+
+  @Test
+  public void answersPipelinedFramesInOrder() throws IOException {
+    ByteBuffer frames = ByteBuffer.allocate(512);
+    IngestProtocol.add(frames, 1, 1000, 2, CARS, Transaction.NO_PARENT);
+    IngestProtocol.add(frames, 2, 550, 2, CARS, 1);
+    IngestProtocol.add(frames, 2, 550, 2, CARS, 1);
+    IngestProtocol.sum(frames, 1);
+    IngestProtocol.rollback(frames, 2);
+    IngestProtocol.sum(frames, 1);
+    IngestProtocol.add(frames, 3, 100, 2, CARS, 9);
+    send(frames);
+
+    ByteBuffer answers = receive(7);
+    assertThat(status(answers), is(201));
+    assertThat(status(answers), is(201));
+    assertThat(status(answers), is(400));
+    assertThat(status(answers), is(200));
+    assertThat(answers.getLong(), is(1550L));
+    assertThat(answers.get(), is((byte) 2));
+    assertThat(status(answers), is(200));
+    assertThat(status(answers), is(200));
+    assertThat(answers.getLong(), is(1000L));
+    assertThat(answers.get(), is((byte) 2));
+    assertThat(status(answers), is(404));
+    assertThat(transactionsHolder.getSum(1), is(new BigDecimal("10.00")));
+  }
+
+  // more adds than the answers of one write buffer window used to reserve room for, all sent in one write
+  @Test(timeout = 10_000)
+  public void answersMoreFramesThanOneAnswerWindowInOneWrite() throws IOException {
+    int count = 1500;
+    ByteBuffer frames = ByteBuffer.allocate(64 * 1024);
+    IngestProtocol.add(frames, 1, 100, 2, CARS, Transaction.NO_PARENT);
+    for (long id = 2; id <= count; id++) {
+      IngestProtocol.add(frames, id, 100, 2, CARS, 1);
+    }
+    send(frames);
+
+    ByteBuffer answers = receive(count);
+    for (int i = 0; i < count; i++) {
+      assertThat(status(answers), is(201));
+    }
+    assertThat(transactionsHolder.getSum(1), is(new BigDecimal("1500.00")));
+  }
+
+  @Test
+  public void closesTheConnectionOnAnUnknownCommand() throws IOException {
+    ByteBuffer frames = ByteBuffer.allocate(64);
+    frames.putInt(1 + Long.BYTES).put((byte) 9).putLong(1);
+    send(frames);
+
+    assertThat(channel.read(ByteBuffer.allocate(64)), is(-1));
+  }
+
+  private void send(ByteBuffer frames) throws IOException {
+    frames.flip();
+    while (frames.hasRemaining()) {
+      channel.write(frames);
+    }
+  }
+
+  // reads the given number of answers, leaving the buffer at the first one
+  private ByteBuffer receive(int count) throws IOException {
+    ByteBuffer answers = ByteBuffer.allocate(count * IngestProtocol.MAX_RESPONSE_BYTES);
+    int received = 0;
+    while (received < count) {
+      if (channel.read(answers) < 0) {
+        throw new IOException("Listener closed the connection");
+      }
+      received = 0;
+      for (int position = 0; position + Integer.BYTES <= answers.position(); received++) {
+        int next = position + Integer.BYTES + answers.getInt(position);
+        if (next > answers.position()) {
+          break;
+        }
+        position = next;
+      }
+    }
+    return answers.flip();
+  }
+
+  // the status of the next answer, leaving the buffer at its fields
+  private int status(ByteBuffer answers) {
+    answers.getInt();
+    int status = answers.getInt();
+    if (status >= 300) {
+      int length = Short.toUnsignedInt(answers.getShort());
+      answers.position(answers.position() + length);
+    }
+    return status;
+  }
+}
@@ -0,0 +1,172 @@
+package org.example.loadtest;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.example.Main;
+import org.example.listener.IngestListener;
+import org.example.listener.IngestProtocol;
+import org.example.model.Transaction;
+import org.example.persistance.TransactionsHolder;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+
+// Drives the rest api and then the ingest listener with adds under a few contended trees and sums of their roots,
+// printing both results to compare. Every listener connection pipelines a window of frames before reading the answers;
+// the latency of a frame is the round trip of its window.
+// mvn -Ploadtest test-compile exec:exec -Dloadtest=org.example.loadtest.IngestListenerLoadTest -Dclients=64 -Dwindow=256
+public class IngestListenerLoadTest {
+
+  private static final int HOT_TREES = 8;
+  private static final byte[][] TYPES = {"cars".getBytes(UTF_8), "shopping".getBytes(UTF_8)};
+
+  private final int connections;
+  private final int window;
+  private final Duration duration;
+  private final AtomicLong ids = new AtomicLong();
+
+  public IngestListenerLoadTest(int connections, int window, Duration duration) {
+    this.connections = connections;
+    this.window = window;
+    this.duration = duration;
+  }
+
+  public static void main(String[] args) throws Exception {
+    int connections = args.length > 0 ? Integer.parseInt(args[0]) : 64;
+    Duration duration = Duration.ofSeconds(args.length > 1 ? Long.parseLong(args[1]) : 30);
+    int window = args.length > 2 ? Integer.parseInt(args[2]) : 256;
+    System.out.println(new TransactionsLoadTest(connections, duration).run(false));
+    System.out.println(new IngestListenerLoadTest(connections, window, duration).run());
+  }
+
+  public TransactionsLoadTest.Result run() throws Exception {
+    TransactionsHolder.get().clearTransactionMap();
+    try (ConfigurableApplicationContext context = SpringApplication.run(Main.class, "--server.port=0",
+        "--transactions.listener.enabled=true", "--transactions.listener.port=0", "--logging.level.root=WARN")) {
+      InetSocketAddress address = new InetSocketAddress("localhost", context.getBean(IngestListener.class).port());
+      try (SocketChannel channel = SocketChannel.open(address)) {
+        Client setup = new Client(channel, 0);
+        for (int tree = 1; tree <= HOT_TREES; tree++) {
+          IngestProtocol.add(setup.frames, ids.incrementAndGet(), 1050, 2, TYPES[0], Transaction.NO_PARENT);
+        }
+        setup.roundTrip(HOT_TREES);
+      }
+
+      drive(address, Duration.ofSeconds(Math.max(1, duration.getSeconds() / 5)));
+      return new TransactionsLoadTest.Result("ingest listener", drive(address, duration), duration);
+    }
+  }
+
+  private long[][] drive(InetSocketAddress address, Duration runFor) throws InterruptedException {
+    ExecutorService executor = Executors.newFixedThreadPool(connections);
+    CountDownLatch done = new CountDownLatch(connections);
+    long[][] latencies = new long[connections][];
+    long deadline = System.nanoTime() + runFor.toNanos();
+    for (int connection = 0; connection < connections; connection++) {
+      int slot = connection;
+      executor.execute(() -> {
+        try (SocketChannel channel = SocketChannel.open(address)) {
+          latencies[slot] = new Client(channel, deadline).call();
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        } finally {
+          done.countDown();
+        }
+      });
+    }
+    done.await();
+    executor.shutdown();
+    return latencies;
+  }
+
+  private class Client {
+
+    private final SocketChannel channel;
+    private final long deadline;
+    private final ByteBuffer frames = ByteBuffer.allocateDirect(window * 64);
+    private final ByteBuffer answers = ByteBuffer.allocateDirect(window * 512);
+    private long[] latencies = new long[1024];
+    private int count;
+
+    private Client(SocketChannel channel, long deadline) {
+      this.channel = channel;
+      this.deadline = deadline;
+      answers.limit(0);
+    }
+
+    // 90% adds under one of the hot trees, 10% sums of a hot root
+    private long[] call() throws IOException {
+      ThreadLocalRandom random = ThreadLocalRandom.current();
+      while (System.nanoTime() < deadline) {
+        for (int i = 0; i < window; i++) {
+          long hotRoot = random.nextInt(HOT_TREES) + 1;
+          if (random.nextInt(10) < 9) {
+            long id = ids.incrementAndGet();
+            IngestProtocol.add(frames, id, 1050, 2, TYPES[(int) (id & 1)], hotRoot);
+          } else {
+            IngestProtocol.sum(frames, hotRoot);
+          }
+        }
+        long start = System.nanoTime();
+        int failures = roundTrip(window);
+        long latency = System.nanoTime() - start;
+        for (int i = 0; i < window; i++) {
+          record(i < failures ? -1 : latency);
+        }
+      }
+      return Arrays.copyOf(latencies, count);
+    }
+
+    // sends the buffered frames and reads one answer for each, returning how many failed
+    private int roundTrip(int frameCount) throws IOException {
+      frames.flip();
+      while (frames.hasRemaining()) {
+        channel.write(frames);
+      }
+      frames.clear();
+      int failures = 0;
+      for (int answered = 0; answered < frameCount; answered++) {
+        fill(Integer.BYTES);
+        int length = answers.getInt();
+        fill(length);
+        if (answers.getInt() >= 300) {
+          failures++;
+        }
+        answers.position(answers.position() + length - Integer.BYTES);
+      }
+      return failures;
+    }
+
+    private void fill(int bytes) throws IOException {
+      if (answers.remaining() >= bytes) {
+        return;
+      }
+      answers.compact();
+      while (answers.position() < bytes) {
+        if (channel.read(answers) < 0) {
+          throw new IOException("Listener closed the connection");
+        }
+      }
+      answers.flip();
+    }
+
+    private void record(long latency) {
+      if (count == latencies.length) {
+        latencies = Arrays.copyOf(latencies, count << 1);
+      }
+      latencies[count++] = latency;
+    }
+  }
+}
@@ -0,0 +1,181 @@
+package org.example.loadtest;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.example.Main;
+import org.example.persistance.TransactionsHolder;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+
+// Starts the service on the Tomcat platform thread pool and then on virtual threads (Java 21) and drives the same mix
+// of adds on a few contended trees, sums and type pages against each, printing throughput and latency percentiles.
+// mvn -Ploadtest test-compile exec:exec -Dclients=1000 -Dseconds=30
+public class TransactionsLoadTest {
+
+  private static final int HOT_TREES = 8;
+  private static final String JSON = "application/json";
+
+  private final int clients;
+  private final Duration duration;
+  private final AtomicLong ids = new AtomicLong();
+
+  public TransactionsLoadTest(int clients, Duration duration) {
+    this.clients = clients;
+    this.duration = duration;
+  }
+
+  public static void main(String[] args) throws Exception {
+    int clients = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+    Duration duration = Duration.ofSeconds(args.length > 1 ? Long.parseLong(args[1]) : 30);
+    TransactionsLoadTest loadTest = new TransactionsLoadTest(clients, duration);
+    System.out.println(loadTest.run(false));
+    if (Runtime.version().feature() >= 21) {
+      System.out.println(loadTest.run(true));
+    } else {
+      System.out.println("virtual threads skipped, running on Java " + Runtime.version());
+    }
+  }
+
+  public Result run(boolean virtualThreads) throws Exception {
+    TransactionsHolder.get().clearTransactionMap();
+    try (ConfigurableApplicationContext context = SpringApplication.run(Main.class, "--server.port=0",
+        "--transactions.virtual-threads.enabled=" + virtualThreads, "--logging.level.root=WARN")) {
+      String baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port") + "/transactions";
+      HttpClient httpClient = HttpClient.newBuilder().executor(Executors.newCachedThreadPool()).build();
+      for (int tree = 1; tree <= HOT_TREES; tree++) {
+        send(httpClient, put(baseUrl, ids.incrementAndGet(), null));
+      }
+
+      // one warm-up round so both modes are measured with a compiled server
+      drive(httpClient, baseUrl, Duration.ofSeconds(Math.max(1, duration.getSeconds() / 5)));
+      return new Result(virtualThreads ? "virtual threads" : "platform threads", drive(httpClient, baseUrl, duration),
+                        duration);
+    }
+  }
+
+  private long[][] drive(HttpClient httpClient, String baseUrl, Duration runFor) throws InterruptedException {
+    ExecutorService executor = Executors.newFixedThreadPool(clients);
+    CountDownLatch done = new CountDownLatch(clients);
+    long[][] latencies = new long[clients][];
+    long deadline = System.nanoTime() + runFor.toNanos();
+    for (int client = 0; client < clients; client++) {
+      Client worker = new Client(httpClient, baseUrl, deadline);
+      int slot = client;
+      executor.execute(() -> {
+        try {
+          latencies[slot] = worker.call();
+        } finally {
+          done.countDown();
+        }
+      });
+    }
+    done.await();
+    executor.shutdown();
+    return latencies;
+  }
+
+  private HttpRequest put(String baseUrl, long id, Long parentId) {
+    String body = "{\"amount\":10.5,\"type\":\"" + (id % 2 == 0 ? "cars" : "shopping") + "\""
+                  + (parentId == null ? "" : ",\"parent_id\":" + parentId) + "}";
+    return HttpRequest.newBuilder(URI.create(baseUrl + "/" + id))
+        .header("Content-Type", JSON)
+        .PUT(HttpRequest.BodyPublishers.ofString(body))
+        .build();
+  }
+
+  private static boolean send(HttpClient httpClient, HttpRequest request) {
+    try {
+      return httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() < 300;
+    } catch (IOException e) {
+      return false;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    }
+  }
+
+  private class Client {
+
+    private final HttpClient httpClient;
+    private final String baseUrl;
+    private final long deadline;
+    private long[] latencies = new long[1024];
+    private int count;
+
+    private Client(HttpClient httpClient, String baseUrl, long deadline) {
+      this.httpClient = httpClient;
+      this.baseUrl = baseUrl;
+      this.deadline = deadline;
+    }
+
+    // 60% adds under one of the hot trees, 30% sums of a hot root, 10% pages of a type
+    private long[] call() {
+      ThreadLocalRandom random = ThreadLocalRandom.current();
+      while (System.nanoTime() < deadline) {
+        int operation = random.nextInt(10);
+        long hotRoot = random.nextInt(HOT_TREES) + 1;
+        HttpRequest request;
+        if (operation < 6) {
+          request = put(baseUrl, ids.incrementAndGet(), hotRoot);
+        } else if (operation < 9) {
+          request = HttpRequest.newBuilder(URI.create(baseUrl + "/sum/" + hotRoot)).build();
+        } else {
+          request = HttpRequest.newBuilder(URI.create(baseUrl + "/types/cars?limit=100")).build();
+        }
+        long start = System.nanoTime();
+        boolean succeeded = send(httpClient, request);
+        record(succeeded ? System.nanoTime() - start : -1);
+      }
+      return Arrays.copyOf(latencies, count);
+    }
+
+    private void record(long latency) {
+      if (count == latencies.length) {
+        latencies = Arrays.copyOf(latencies, count << 1);
+      }
+      latencies[count++] = latency;
+    }
+  }
+
+  public static class Result {
+
+    private final String mode;
+    private final long requests;
+    private final long errors;
+    private final double throughput;
+    private final long[] sorted;
+
+    Result(String mode, long[][] latencies, Duration duration) {
+      this.mode = mode;
+      this.sorted = Arrays.stream(latencies).flatMapToLong(Arrays::stream).filter(latency -> latency >= 0).sorted().toArray();
+      this.requests = Arrays.stream(latencies).mapToLong(client -> client.length).sum();
+      this.errors = requests - sorted.length;
+      this.throughput = sorted.length / (double) duration.getSeconds();
+    }
+
+    private double percentileMillis(double percentile) {
+      if (sorted.length == 0) {
+        return 0;
+      }
+      return sorted[(int) Math.min(sorted.length - 1, Math.ceil(percentile * sorted.length) - 1)] / 1_000_000d;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("%-16s requests=%d errors=%d throughput=%.0f/s p50=%.2fms p99=%.2fms p99.9=%.2fms", mode,
+                           requests, errors, throughput, percentileMillis(0.5), percentileMillis(0.99),
+                           percentileMillis(0.999));
+    }
+  }
+}
@@ -5,6 +5,7 @@ import static org.example.util.Util.DEFAULT_ID;
 import static org.example.util.Util.DEFAULT_TYPE;
 import static org.example.util.Util.createDefaultTransaction;
 import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
 import static org.hamcrest.MatcherAssert.assertThat;
 
 import java.math.BigDecimal;
@@ -26,6 +27,32 @@ public class TransactionModelTestCase {
     assertThat(transaction.getType(), is(DEFAULT_TYPE));
   }
 
+  @Test
+  public void createTransactionKeepsTheAmountScale() {
+    assertThat(new Transaction(DEFAULT_ID, new BigDecimal("5"), DEFAULT_TYPE).getAmount(), is(new BigDecimal("5")));
+    assertThat(new Transaction(DEFAULT_ID, new BigDecimal("10.5"), DEFAULT_TYPE).getAmount(), is(new BigDecimal("10.5")));
+    assertThat(new Transaction(DEFAULT_ID, new BigDecimal("10.50"), DEFAULT_TYPE).getAmountCents(), is(1050L));
+  }
+
+  @Test
+  public void createTransactionWithoutParent() {
+    Transaction transaction = createDefaultTransaction();
+    assertThat(transaction.hasParent(), is(false));
+    assertThat(transaction.getChildCount(), is(0));
+  }
+
+  @Test
+  public void createTransactionInternsTheType() {
+    Transaction first = new Transaction(1, DEFAULT_AMOUNT, new String(DEFAULT_TYPE));
+    Transaction second = new Transaction(2, DEFAULT_AMOUNT, new String(DEFAULT_TYPE));
+    assertThat(first.getType(), is(sameInstance(second.getType())));
+  }
+
+  @Test(expected = InvalidNumberFormatException.class)
+  public void createTransactionWithAmountTooLarge() {
+    new Transaction(DEFAULT_ID, new BigDecimal("100000000000000000000"), DEFAULT_TYPE);
+  }
+
   @Test(expected = NegativeIdException.class)
   public void createTransactionWithNegativeId(){
     new Transaction(-1, DEFAULT_AMOUNT, DEFAULT_TYPE);
@@ -65,4 +92,37 @@ public class TransactionModelTestCase {
     assertThat(transaction.isActive(), is(false));
     transaction.rollback();
   }
+
+  @Test
+  public void subtreeAmountKeepsTheVersionsReadersMayStillAskFor() {
+    Transaction transaction = new Transaction(DEFAULT_ID, new BigDecimal(1), DEFAULT_TYPE);
+    transaction.addToSubtreeAmount(100, 0, 5, 0);
+    transaction.addToSubtreeAmount(100, 0, 8, 0);
+    assertThat(transaction.getSubtreeAmountCents(), is(300L));
+    assertThat(transaction.getSubtreeAmountCentsAt(4), is(100L));
+    assertThat(transaction.getSubtreeAmountCentsAt(7), is(200L));
+    assertThat(transaction.getSubtreeAmountCentsAt(8), is(300L));
+
+    // nobody reads before sequence 8 anymore, the oldest version kept is the one visible at 8
+    transaction.addToSubtreeAmount(-300, 0, 9, 8);
+    assertThat(transaction.getSubtreeAmountCentsAt(8), is(300L));
+    assertThat(transaction.getSubtreeAmountCentsAt(4), is(300L));
+    assertThat(transaction.getSubtreeAmountCentsAt(9), is(0L));
+  }
+
+  @Test
+  public void activeAndChildrenAsOfASequence() {
+    Transaction parent = new Transaction(DEFAULT_ID, DEFAULT_AMOUNT, DEFAULT_TYPE);
+    parent.setCreatedSequence(1);
+    Transaction child = new Transaction(2, DEFAULT_AMOUNT, DEFAULT_TYPE, DEFAULT_ID);
+    child.setCreatedSequence(2);
+    child.setParent(parent);
+    parent.addChild(child);
+    parent.rollback(3);
+
+    assertThat(parent.getChildCountAt(1), is(0));
+    assertThat(parent.getChildCountAt(2), is(1));
+    assertThat(parent.isActiveAt(2), is(true));
+    assertThat(parent.isActiveAt(3), is(false));
+  }
 }
@@ -0,0 +1,64 @@
+package org.example.model;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class TransactionTraversalTestCase {
+
+  @Test
+  public void visitDescendantsInPreOrder() {
+    Transaction root = createTransaction(1, null);
+    Transaction first = createTransaction(2, root);
+    createTransaction(3, first);
+    createTransaction(4, root);
+
+    List<Long> visited = new ArrayList<>();
+    TransactionTraversal.get().visitDescendants(root, 0, (transaction, depth) -> {
+      visited.add(transaction.getId());
+      return depth + 1;
+    });
+    assertThat(visited, is(List.of(2L, 3L, 4L)));
+  }
+
+  @Test
+  public void visitActiveSkipsRollbackedSubtrees() {
+    Transaction root = createTransaction(1, null);
+    Transaction child = createTransaction(2, root);
+    createTransaction(3, child);
+    createTransaction(4, root);
+
+    child.rollback(1);
+    List<Long> visited = new ArrayList<>();
+    TransactionTraversal.get().visitActive(root, transaction -> visited.add(transaction.getId()));
+    assertThat(visited, is(List.of(1L, 4L)));
+  }
+
+  @Test
+  public void rollbackMarksOnlyTheTransactionAndReachesItsSubtreeThroughIt() {
+    Transaction root = createTransaction(1, null);
+    Transaction child = createTransaction(2, root);
+    Transaction grandChild = createTransaction(3, child);
+
+    child.rollback(5);
+    assertThat(root.isActive(), is(true));
+    assertThat(grandChild.isRollbackRoot(), is(false));
+    assertThat(grandChild.isActive(), is(false));
+    assertThat(grandChild.isActiveAt(4), is(true));
+    assertThat(grandChild.isActiveAt(5), is(false));
+  }
+
+  private Transaction createTransaction(long id, Transaction parent) {
+    Transaction transaction = new Transaction(id, new BigDecimal(10), "Shopping");
+    if (parent != null) {
+      transaction.setParent(parent);
+      parent.addChild(transaction);
+    }
+    return transaction;
+  }
+}
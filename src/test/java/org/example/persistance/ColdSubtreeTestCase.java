@@ -0,0 +1,123 @@
+package org.example.persistance;
+
+import static java.util.Optional.empty;
+import static java.util.Optional.of;
+
+import static org.example.util.Util.DEFAULT_TYPE;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.hasSize;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.example.exceptions.AlreadyCreatedTransactionException;
+import org.example.exceptions.AlreadyRollbackedException;
+import org.example.persistance.tiering.ColdSubtreeStore;
+import org.example.serializer.TransactionSerializerRequest;
+import org.example.serializer.TransactionSerializerResponse;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ColdSubtreeTestCase {
+
+  private final TransactionsHolder transactionsHolder = new TransactionsHolder();
+  private ColdSubtreeStore coldStore;
+
+  @Before
+  public void before() throws IOException {
+    coldStore = new ColdSubtreeStore(Files.createTempDirectory("cold"), 4096);
+    transactionsHolder.useColdStore(coldStore);
+    add(1, 100, empty());
+    add(2, 20, of(1L));
+    add(3, 3, of(2L));
+    add(5, 5, of(3L));
+    add(4, 4, of(1L));
+    transactionsHolder.rollbackTransaction(2);
+  }
+
+  @After
+  public void after() {
+    coldStore.close();
+  }
+
+  @Test
+  public void spilledSubtreeIsReadBackFromTheColdStore() throws IOException {
+    assertThat(transactionsHolder.spillColdSubtrees(0), is(2L));
+
+    assertThat(transactionsHolder.spilledSize(), is(2L));
+    assertThat(transactionsHolder.size(), is(5L));
+    assertThat(transactionsHolder.findTransaction(5).get().isActive(), is(false));
+    assertThat(transactionsHolder.findTransaction(5).get().getParent().getId(), is(3L));
+    assertThat(transactionsHolder.getSum(1), is(new BigDecimal(104)));
+    assertThat(transactionsHolder.getSum(3), is(BigDecimal.ZERO));
+    TransactionSerializerResponse rollbacked = transactionsHolder.getTransaction(2).get();
+    assertThat(rollbacked.getChilds(), hasSize(1));
+    assertThat(rollbacked.getChilds().get(0).getChilds().get(0).getId(), is(5L));
+  }
+
+  @Test
+  public void rollbacksYoungerThanTheMinimumAgeStayInTheHeap() throws IOException {
+    assertThat(transactionsHolder.spillColdSubtrees(60_000), is(0L));
+
+    assertThat(transactionsHolder.spilledSize(), is(0L));
+    assertThat(transactionsHolder.spillColdSubtrees(0), is(2L));
+  }
+
+  @Test
+  public void readersWalkingTheSubtreeWhileItIsSpilledSeeItWhole() throws Exception {
+    for (long id = 10; id < 2_010; id++) {
+      add(id, 1, of(4L));
+    }
+    transactionsHolder.rollbackTransaction(4);
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      AtomicBoolean spilling = new AtomicBoolean(true);
+      Future<?> reads = executor.submit(() -> {
+        do {
+          assertThat(transactionsHolder.getTransaction(4).get().getChilds(), hasSize(2_000));
+        } while (spilling.get());
+      });
+      assertThat(transactionsHolder.spillColdSubtrees(0), is(2_002L));
+      spilling.set(false);
+
+      reads.get();
+      assertThat(transactionsHolder.getTransaction(4).get().getChilds(), hasSize(2_000));
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test(expected = AlreadyRollbackedException.class)
+  public void addUnderASpilledTransactionFails() throws IOException {
+    transactionsHolder.spillColdSubtrees(0);
+
+    add(6, 1, of(5L));
+  }
+
+  @Test(expected = AlreadyCreatedTransactionException.class)
+  public void spilledIdCannotBeCreatedAgain() throws IOException {
+    transactionsHolder.spillColdSubtrees(0);
+
+    add(3, 30, of(1L));
+  }
+
+  @Test(expected = AlreadyRollbackedException.class)
+  public void rollbackOfASpilledTransactionFails() throws IOException {
+    transactionsHolder.spillColdSubtrees(0);
+
+    transactionsHolder.rollbackTransaction(3);
+  }
+
+  private void add(long id, long amount, Optional<Long> parentId) {
+    transactionsHolder.addTransaction(id, new TransactionSerializerRequest(new BigDecimal(amount), DEFAULT_TYPE,
+                                                                           parentId));
+  }
+}
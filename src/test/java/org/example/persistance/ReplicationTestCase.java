@@ -0,0 +1,131 @@
+package org.example.persistance;
+
+import static java.util.Optional.empty;
+import static java.util.Optional.of;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import org.example.replication.ReplicationFollower;
+import org.example.replication.ReplicationLeader;
+import org.example.serializer.TransactionSerializerRequest;
+import org.junit.After;
+import org.junit.Test;
+
+// a leader and its followers on localhost, each node with its own holder
+public class ReplicationTestCase {
+
+  private static final long WAIT_MILLIS = 10_000;
+
+  private final TransactionsHolder leaderHolder = new TransactionsHolder();
+  private final List<AutoCloseable> nodes = new ArrayList<>();
+
+  @After
+  public void after() throws Exception {
+    for (int i = nodes.size() - 1; i >= 0; i--) {
+      nodes.get(i).close();
+    }
+  }
+
+  @Test
+  public void followersReplayTheStateTheLeaderStartedWithAndEveryLaterMutation() throws Exception {
+    leaderHolder.addTransaction(1, request(10, empty()));
+    leaderHolder.addTransaction(2, request(5, of(1L)));
+    leaderHolder.addTransaction(3, request(1, of(2L)));
+    leaderHolder.rollbackTransaction(3);
+    leaderHolder.rollbackTransaction(2);
+    ReplicationLeader leader = start(new ReplicationLeader(leaderHolder, 0, 50));
+    TransactionsHolder firstHolder = new TransactionsHolder();
+    ReplicationFollower first = start(new ReplicationFollower(firstHolder, "localhost", leader.port(), 50));
+
+    leaderHolder.addTransaction(4, request(7, of(1L)));
+    leaderHolder.addTransaction(5, request(3, empty()));
+    leaderHolder.rollbackTransaction(5);
+    assertThat(first.awaitOffset(leader.endOffset(), WAIT_MILLIS), is(true));
+    assertSameState(firstHolder);
+
+    // a follower joining later catches up from the state of the holder, the leader kept none of the log
+    TransactionsHolder secondHolder = new TransactionsHolder();
+    ReplicationFollower second = start(new ReplicationFollower(secondHolder, "localhost", leader.port(), 50));
+    assertThat(second.awaitOffset(leader.endOffset(), WAIT_MILLIS), is(true));
+    assertSameState(secondHolder);
+    assertThat(secondHolder.getTransaction(3).get().isActive(), is(false));
+  }
+
+  @Test
+  public void aFollowerOfANewLeaderStartsOver() throws Exception {
+    leaderHolder.addTransaction(1, request(10, empty()));
+    ReplicationLeader leader = start(new ReplicationLeader(leaderHolder, 0, 50));
+    TransactionsHolder followerHolder = new TransactionsHolder();
+    followerHolder.addTransaction(99, request(1, empty()));
+    ReplicationFollower follower = start(new ReplicationFollower(followerHolder, "localhost", leader.port(), 50));
+
+    assertThat(follower.awaitOffset(1, WAIT_MILLIS), is(true));
+    assertThat(followerHolder.getTransaction(99).isPresent(), is(false));
+    assertThat(follower.lag(), is(0L));
+  }
+
+  @Test
+  public void onlyTheRecordsTheSlowestFollowerStillNeedsAreKept() throws Exception {
+    ReplicationLeader leader = start(new ReplicationLeader(leaderHolder, 0, 50));
+    leaderHolder.addTransaction(1, request(10, empty()));
+    assertThat(leader.keptRecords(), is(0));
+
+    TransactionsHolder followerHolder = new TransactionsHolder();
+    ReplicationFollower follower = start(new ReplicationFollower(followerHolder, "localhost", leader.port(), 50));
+    for (long id = 2; id <= 100; id++) {
+      leaderHolder.addTransaction(id, request(1, of(id - 1)));
+    }
+    assertThat(follower.awaitOffset(leader.endOffset(), WAIT_MILLIS), is(true));
+    assertThat(leader.keptRecords(), is(0));
+    assertSameState(followerHolder);
+  }
+
+  @Test
+  public void aFollowerOfARestartedLeaderCarriesOn() throws Exception {
+    Path stateDirectory = Files.createTempDirectory("replication");
+    leaderHolder.addTransaction(1, request(10, empty()));
+    ReplicationLeader leader = start(new ReplicationLeader(leaderHolder, stateDirectory, 0, 50));
+    TransactionsHolder followerHolder = new TransactionsHolder();
+    ReplicationFollower follower = start(new ReplicationFollower(followerHolder, "localhost", leader.port(), 50));
+    assertThat(follower.awaitOffset(leader.endOffset(), WAIT_MILLIS), is(true));
+    // only on the replica, starting over would drop it
+    followerHolder.addTransaction(99, request(1, empty()));
+    leader.close();
+
+    leaderHolder.addTransaction(2, request(5, of(1L)));
+    leaderHolder.rollbackTransaction(2);
+    ReplicationLeader restarted = start(new ReplicationLeader(leaderHolder, stateDirectory, leader.port(), 50));
+    leaderHolder.addTransaction(3, request(1, of(1L)));
+
+    assertThat(follower.awaitOffset(restarted.endOffset(), WAIT_MILLIS), is(true));
+    assertThat(followerHolder.getTransaction(99).isPresent(), is(true));
+    assertThat(followerHolder.getTransaction(2).get().isActive(), is(false));
+    assertThat(followerHolder.getSum(1), is(leaderHolder.getSum(1)));
+  }
+
+  private void assertSameState(TransactionsHolder follower) {
+    assertThat(follower.size(), is(leaderHolder.size()));
+    for (long id = 1; id <= leaderHolder.size(); id++) {
+      assertThat(follower.getTransaction(id).get().isActive(), is(leaderHolder.getTransaction(id).get().isActive()));
+      assertThat(follower.getSum(id), is(leaderHolder.getSum(id)));
+    }
+    assertThat(follower.getIdsByType("cars"), is(leaderHolder.getIdsByType("cars")));
+  }
+
+  private <T extends AutoCloseable> T start(T node) {
+    nodes.add(node);
+    return node;
+  }
+
+  private TransactionSerializerRequest request(int amount, Optional<Long> parentId) {
+    return new TransactionSerializerRequest(new BigDecimal(amount), "cars", parentId);
+  }
+}
@@ -0,0 +1,106 @@
+package org.example.persistance;
+
+import static java.util.Optional.empty;
+import static java.util.Optional.of;
+
+import static org.example.util.Util.DEFAULT_TYPE;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.hasSize;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.example.persistance.snapshot.SnapshotStore;
+import org.example.persistance.wal.WriteAheadLog;
+import org.example.serializer.TransactionSerializerRequest;
+import org.example.serializer.TransactionSerializerResponse;
+import org.example.serializer.TypeTotalsSerializer;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TransactionRecoveryTestCase {
+
+  private static final int SMALL_SEGMENT = 4096;
+
+  private Path directory;
+
+  @Before
+  public void before() throws IOException {
+    directory = Files.createTempDirectory("wal");
+  }
+
+  @Test
+  public void replayRebuildsTransactionsTypesAndSums() throws IOException {
+    try (WriteAheadLog writeAheadLog = new WriteAheadLog(directory, SMALL_SEGMENT, true, 10)) {
+      TransactionsHolder transactionsHolder = new TransactionsHolder();
+      transactionsHolder.recover(writeAheadLog);
+      transactionsHolder.addTransaction(1, new TransactionSerializerRequest(new BigDecimal("10.5"), DEFAULT_TYPE, empty()));
+      for (long id = 2; id <= 200; id++) {
+        transactionsHolder.addTransaction(id, new TransactionSerializerRequest(new BigDecimal(1), "Cars", of(id - 1)));
+      }
+      transactionsHolder.rollbackTransaction(150);
+    }
+
+    try (WriteAheadLog writeAheadLog = new WriteAheadLog(directory, SMALL_SEGMENT, true, 10)) {
+      assertThat(writeAheadLog.segments().size() > 1, is(true));
+      TransactionsHolder transactionsHolder = new TransactionsHolder();
+      transactionsHolder.recover(writeAheadLog);
+
+      assertThat(transactionsHolder.getSum(1), is(new BigDecimal("158.5")));
+      assertThat(transactionsHolder.getSum(150), is(BigDecimal.ZERO));
+      assertThat(transactionsHolder.getTransaction(200).get().isActive(), is(false));
+      assertThat(transactionsHolder.getTransaction(1).get().getAmount(), is(new BigDecimal("10.5")));
+      List<Long> cars = transactionsHolder.getIdsByType("Cars");
+      assertThat(cars, hasSize(199));
+      assertThat(cars.get(0), is(2L));
+      TypeTotalsSerializer carTotals = transactionsHolder.getTypeTotals("Cars");
+      assertThat(carTotals.getActiveCount(), is(148L));
+      assertThat(carTotals.getActiveSum(), is(new BigDecimal("148")));
+
+      transactionsHolder.addTransaction(201, new TransactionSerializerRequest(new BigDecimal(1), DEFAULT_TYPE, of(149L)));
+      TransactionSerializerResponse parent = transactionsHolder.getTransaction(149).get();
+      assertThat(parent.getChilds(), hasSize(2));
+      assertThat(transactionsHolder.getSum(1), is(new BigDecimal("159.5")));
+    }
+  }
+
+  @Test
+  public void snapshotTruncatesTheLogAndRecoversWithTheRemainingRecords() throws IOException {
+    SnapshotStore snapshotStore = new SnapshotStore(directory.resolve("snapshots"));
+    try (WriteAheadLog writeAheadLog = new WriteAheadLog(directory, SMALL_SEGMENT, true, 10)) {
+      TransactionsHolder transactionsHolder = new TransactionsHolder();
+      transactionsHolder.recover(snapshotStore, writeAheadLog);
+      transactionsHolder.addTransaction(1, new TransactionSerializerRequest(new BigDecimal(100), DEFAULT_TYPE, empty()));
+      for (long id = 2; id <= 100; id++) {
+        transactionsHolder.addTransaction(id, new TransactionSerializerRequest(new BigDecimal(1), "Cars", of(1L)));
+      }
+      transactionsHolder.rollbackTransaction(50);
+      transactionsHolder.snapshot(snapshotStore);
+      assertThat(writeAheadLog.segments(), hasSize(0));
+
+      transactionsHolder.addTransaction(101, new TransactionSerializerRequest(new BigDecimal(5), "Cars", of(2L)));
+      transactionsHolder.rollbackTransaction(3);
+      assertThat(writeAheadLog.segments(), hasSize(1));
+    }
+
+    try (WriteAheadLog writeAheadLog = new WriteAheadLog(directory, SMALL_SEGMENT, true, 10)) {
+      TransactionsHolder transactionsHolder = new TransactionsHolder();
+      transactionsHolder.recover(snapshotStore, writeAheadLog);
+
+      assertThat(transactionsHolder.getSum(1), is(new BigDecimal("202")));
+      assertThat(transactionsHolder.getSum(2), is(new BigDecimal("6")));
+      assertThat(transactionsHolder.getSum(50), is(BigDecimal.ZERO));
+      assertThat(transactionsHolder.getSum(3), is(BigDecimal.ZERO));
+      List<Long> cars = transactionsHolder.getIdsByType("Cars");
+      assertThat(cars, hasSize(100));
+      assertThat(cars.get(99), is(101L));
+
+      transactionsHolder.addTransaction(102, new TransactionSerializerRequest(new BigDecimal(1), DEFAULT_TYPE, of(101L)));
+      assertThat(transactionsHolder.getSum(1), is(new BigDecimal("203")));
+    }
+  }
+}
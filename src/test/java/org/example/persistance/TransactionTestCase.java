@@ -1,5 +1,6 @@
 package org.example.persistance;
 
+import static java.math.BigDecimal.ONE;
 import static java.math.BigDecimal.ZERO;
 import static java.util.Optional.empty;
 import static java.util.Optional.of;
@@ -15,14 +16,23 @@ import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.lessThanOrEqualTo;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.example.exceptions.AlreadyCreatedTransactionException;
 import org.example.exceptions.AlreadyRollbackedException;
 import org.example.exceptions.TransactionNotFoundException;
+import org.example.model.Transaction;
+import org.example.serializer.TransactionBatchRequest;
 import org.example.serializer.TransactionSerializerRequest;
 import org.example.serializer.TransactionSerializerResponse;
+import org.example.serializer.TypeTotalsSerializer;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -66,7 +76,33 @@ public class TransactionTestCase {
   @Test(expected = AlreadyCreatedTransactionException.class)
   public void addSimpleTransactionWithRepeatedId() {
     transactionsHolder.addTransaction(DEFAULT_ID, createTransaction(DEFAULT_AMOUNT, DEFAULT_TYPE));
+    transactionsHolder.addTransaction(DEFAULT_ID, createTransaction(DEFAULT_AMOUNT.add(ONE), DEFAULT_TYPE));
+  }
+
+  @Test
+  public void retriedAddAnswersWithTheTransactionAsItWasCreated() {
+    transactionsHolder.addTransaction(DEFAULT_ID, createTransaction(DEFAULT_AMOUNT, DEFAULT_TYPE));
+    transactionsHolder.addTransaction(2, createTransaction(DEFAULT_AMOUNT, DEFAULT_TYPE, of(DEFAULT_ID)));
+    transactionsHolder.rollbackTransaction(DEFAULT_ID);
+
+    TransactionSerializerResponse replayed =
+        transactionsHolder.addTransaction(DEFAULT_ID, createTransaction(DEFAULT_AMOUNT, DEFAULT_TYPE));
+    assertThat(replayed.isActive(), is(true));
+    assertThat(replayed.getChilds(), hasSize(0));
+    assertThat(transactionsHolder.size(), is(2L));
+    assertThat(transactionsHolder.getSum(DEFAULT_ID), is(ZERO));
+  }
+
+  @Test
+  public void conflictingAddFailsWithoutAStackTrace() {
     transactionsHolder.addTransaction(DEFAULT_ID, createTransaction(DEFAULT_AMOUNT, DEFAULT_TYPE));
+    try {
+      transactionsHolder.addTransaction(DEFAULT_ID, createTransaction(DEFAULT_AMOUNT, "other"));
+    } catch (AlreadyCreatedTransactionException e) {
+      assertThat(e.getStackTrace().length, is(0));
+      return;
+    }
+    throw new AssertionError("Expected a conflict");
   }
 
   @Test(expected = TransactionNotFoundException.class)
@@ -110,6 +146,22 @@ public class TransactionTestCase {
     assertThat(transactionsHolder.getSum(DEFAULT_ID), is(DEFAULT_AMOUNT));
   }
 
+  @Test
+  public void getSumIsKeptUpToDateOnEveryAncestor() {
+    transactionsHolder.addTransaction(1, createTransaction(new BigDecimal("10"), DEFAULT_TYPE));
+    transactionsHolder.addTransaction(2, createTransaction(new BigDecimal("20"), DEFAULT_TYPE, of(1L)));
+    transactionsHolder.addTransaction(3, createTransaction(new BigDecimal("30"), DEFAULT_TYPE, of(2L)));
+    transactionsHolder.addTransaction(4, createTransaction(new BigDecimal("40"), DEFAULT_TYPE, of(3L)));
+
+    assertThat(transactionsHolder.getSum(1), is(new BigDecimal("100")));
+    assertThat(transactionsHolder.getSum(3), is(new BigDecimal("70")));
+
+    transactionsHolder.rollbackTransaction(3);
+    assertThat(transactionsHolder.getSum(1), is(new BigDecimal("30")));
+    assertThat(transactionsHolder.getSum(2), is(new BigDecimal("20")));
+    assertThat(transactionsHolder.getSum(4), is(ZERO));
+  }
+
   @Test
   public void getTransactionByType() {
     int startId = 1;
@@ -127,6 +179,23 @@ public class TransactionTestCase {
     assertThat(idsByType, hasSize(0));
   }
 
+  @Test
+  public void typeTotalsFollowAddsAndRollbacks() {
+    transactionsHolder.addTransaction(1, createTransaction(new BigDecimal("10"), DEFAULT_TYPE));
+    transactionsHolder.addTransaction(2, createTransaction(new BigDecimal("20"), "Cars", of(1L)));
+    transactionsHolder.addTransaction(3, createTransaction(new BigDecimal("30"), "Cars", of(2L)));
+    transactionsHolder.addTransaction(4, createTransaction(new BigDecimal("40"), "Cars", of(1L)));
+    transactionsHolder.rollbackTransaction(3);
+    transactionsHolder.rollbackTransaction(2);
+
+    TypeTotalsSerializer cars = transactionsHolder.getTypeTotals("Cars");
+    assertThat(cars.getCount(), is(3L));
+    assertThat(cars.getActiveCount(), is(1L));
+    assertThat(cars.getActiveSum(), is(new BigDecimal("40")));
+    assertThat(transactionsHolder.getTypeTotals().get(1).getActiveSum(), is(new BigDecimal("10")));
+    assertThat(transactionsHolder.getTypeTotals("Boats").getCount(), is(0L));
+  }
+
   @Test
   public void rollbackTransaction() {
     transactionsHolder.addTransaction(DEFAULT_ID, createTransaction(DEFAULT_AMOUNT, DEFAULT_TYPE));
@@ -177,6 +246,297 @@ public class TransactionTestCase {
     transactionsHolder.rollbackTransaction(DEFAULT_ID);
   }
 
+  @Test
+  public void addTransactionsConcurrentlyOnDifferentTrees() throws Exception {
+    int trees = 8;
+    int childs = 200;
+    ExecutorService executor = Executors.newFixedThreadPool(trees);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int tree = 1; tree <= trees; tree++) {
+        long rootId = tree * 1000L;
+        futures.add(executor.submit(() -> {
+          transactionsHolder.addTransaction(rootId, createTransaction(new BigDecimal(1), DEFAULT_TYPE));
+          for (int i = 1; i <= childs; i++) {
+            transactionsHolder.addTransaction(rootId + i, createTransaction(new BigDecimal(1), DEFAULT_TYPE, of(rootId)));
+          }
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } finally {
+      executor.shutdown();
+    }
+
+    for (int tree = 1; tree <= trees; tree++) {
+      assertThat(transactionsHolder.getSum(tree * 1000L), is(new BigDecimal(childs + 1)));
+    }
+    assertThat(transactionsHolder.getIdsByType(DEFAULT_TYPE), hasSize(trees * (childs + 1)));
+  }
+
+  @Test
+  public void deepParentChainDoesNotOverflowTheStack() {
+    // deep enough for a recursive walk to overflow the default stack, every add still updates each ancestor
+    int depth = 10_000;
+    transactionsHolder.addTransaction(1, createTransaction(new BigDecimal(1), DEFAULT_TYPE));
+    for (long id = 2; id <= depth; id++) {
+      transactionsHolder.addTransaction(id, createTransaction(new BigDecimal(1), DEFAULT_TYPE, of(id - 1)));
+    }
+
+    TransactionSerializerResponse root = transactionsHolder.getTransaction(1).get();
+    assertThat(root.getChilds(), hasSize(1));
+    assertThat(transactionsHolder.getSum(1), is(new BigDecimal(depth)));
+
+    transactionsHolder.rollbackTransaction(2);
+    assertTransactionIsRollbacked(depth);
+    assertThat(transactionsHolder.getSum(1), is(new BigDecimal(1)));
+  }
+
+  @Test
+  public void addTransactionsResolvesParentsInsideTheBatch() {
+    transactionsHolder.addTransaction(DEFAULT_ID, createTransaction(DEFAULT_AMOUNT, DEFAULT_TYPE));
+    RuntimeException[] failures = transactionsHolder.addTransactions(List.of(
+        new TransactionBatchRequest(4, new BigDecimal(1), DEFAULT_TYPE, of(3L)),
+        new TransactionBatchRequest(3, new BigDecimal(1), DEFAULT_TYPE, of(2L)),
+        new TransactionBatchRequest(2, new BigDecimal(1), DEFAULT_TYPE, of(DEFAULT_ID))));
+
+    assertThat(Arrays.asList(failures), is(Arrays.asList(null, null, null)));
+    assertThat(transactionsHolder.getSum(DEFAULT_ID), is(DEFAULT_AMOUNT.add(new BigDecimal(3))));
+    assertThat(transactionsHolder.getTransaction(2).get().getChilds().get(0).getId(), is(3L));
+    assertThat(transactionsHolder.getIdsByType(DEFAULT_TYPE), is(List.of(DEFAULT_ID, 2L, 3L, 4L)));
+  }
+
+  @Test
+  public void addTransactionsReportsEveryFailedItem() {
+    transactionsHolder.addTransaction(DEFAULT_ID, createTransaction(DEFAULT_AMOUNT, DEFAULT_TYPE));
+    transactionsHolder.addTransaction(2, createTransaction(DEFAULT_AMOUNT, DEFAULT_TYPE, of(DEFAULT_ID)));
+    transactionsHolder.rollbackTransaction(2);
+    RuntimeException[] failures = transactionsHolder.addTransactions(List.of(
+        new TransactionBatchRequest(DEFAULT_ID, new BigDecimal(1), DEFAULT_TYPE, empty()),
+        new TransactionBatchRequest(3, new BigDecimal(1), DEFAULT_TYPE, of(2L)),
+        new TransactionBatchRequest(4, new BigDecimal(1), DEFAULT_TYPE, of(3L)),
+        new TransactionBatchRequest(5, new BigDecimal(1), DEFAULT_TYPE, of(6L)),
+        new TransactionBatchRequest(6, new BigDecimal(1), DEFAULT_TYPE, of(5L)),
+        new TransactionBatchRequest(7, new BigDecimal(1), DEFAULT_TYPE, of(DEFAULT_ID))));
+
+    assertThat(failures[0] instanceof AlreadyCreatedTransactionException, is(true));
+    assertThat(failures[1] instanceof AlreadyRollbackedException, is(true));
+    assertThat(failures[2] instanceof TransactionNotFoundException, is(true));
+    assertThat(failures[3] instanceof TransactionNotFoundException, is(true));
+    assertThat(failures[4] instanceof TransactionNotFoundException, is(true));
+    assertThat(failures[5], is((RuntimeException) null));
+    assertThat(transactionsHolder.getTransaction(3).isPresent(), is(false));
+    assertThat(transactionsHolder.getSum(DEFAULT_ID), is(DEFAULT_AMOUNT.add(new BigDecimal(1))));
+  }
+
+  @Test
+  public void getIdsByTypeContinuesAfterTheCursor() {
+    for (long id = 1; id <= 6; id++) {
+      transactionsHolder.addTransaction(id, createTransaction(DEFAULT_AMOUNT, id % 2 == 0 ? "Cars" : DEFAULT_TYPE));
+    }
+    assertThat(transactionsHolder.getIdsByType("Cars", 0), is(List.of(2L, 4L, 6L)));
+    assertThat(transactionsHolder.getIdsByType("Cars", 2), is(List.of(4L, 6L)));
+    assertThat(transactionsHolder.getIdsByType("Cars", 6), hasSize(0));
+  }
+
+  @Test(expected = TransactionNotFoundException.class)
+  public void getIdsByTypeWithACursorOfAnotherType() {
+    transactionsHolder.addTransaction(DEFAULT_ID, createTransaction(DEFAULT_AMOUNT, DEFAULT_TYPE));
+    transactionsHolder.getIdsByType("Cars", DEFAULT_ID);
+  }
+
+  @Test
+  public void metricsSeeOperationsLocksTreeShapesAndFailures() {
+    List<String> recorded = new ArrayList<>();
+    transactionsHolder.useMetrics(new HolderMetrics() {
+      @Override
+      public boolean isEnabled() {
+        return true;
+      }
+
+      @Override
+      public void recordOperation(Operation operation, long start) {
+        recorded.add(operation.name());
+      }
+
+      @Override
+      public void recordLock(long requested, long acquired) {
+        recorded.add("LOCK");
+      }
+
+      @Override
+      public void recordTreeShape(Operation operation, int depth, int fanOut) {
+        recorded.add(operation + " " + depth + " " + fanOut);
+      }
+
+      @Override
+      public void recordFailure(RuntimeException failure) {
+        recorded.add(failure.getClass().getSimpleName());
+      }
+    });
+    try {
+      transactionsHolder.addTransaction(DEFAULT_ID, createTransaction(DEFAULT_AMOUNT, DEFAULT_TYPE));
+      transactionsHolder.addTransaction(2, createTransaction(DEFAULT_AMOUNT, DEFAULT_TYPE, of(DEFAULT_ID)));
+      transactionsHolder.getSum(2);
+      transactionsHolder.rollbackTransaction(DEFAULT_ID);
+      try {
+        transactionsHolder.rollbackTransaction(DEFAULT_ID);
+      } catch (AlreadyRollbackedException expected) {
+      }
+    } finally {
+      transactionsHolder.useMetrics(HolderMetrics.NOOP);
+    }
+
+    assertThat(recorded, is(List.of("LOCK", "ADD", "LOCK", "ADD", "SUM 1 0", "SUM", "ROLLBACK 0 1", "LOCK", "ROLLBACK",
+                                    "ROLLBACK 0 1", "LOCK", "AlreadyRollbackedException", "ROLLBACK")));
+  }
+
+  @Test
+  public void readsAtAnEarlierSequenceLeaveOutLaterWrites() {
+    transactionsHolder.addTransaction(DEFAULT_ID, createTransaction(DEFAULT_AMOUNT, DEFAULT_TYPE));
+    long readSequence = transactionsHolder.visibleSequence();
+    transactionsHolder.addTransaction(2, createTransaction(DEFAULT_AMOUNT, DEFAULT_TYPE, of(DEFAULT_ID)));
+    transactionsHolder.rollbackTransaction(DEFAULT_ID);
+
+    TransactionSerializerResponse earlier =
+        new TransactionSerializerResponse(transactionsHolder.findTransaction(DEFAULT_ID, readSequence).get(), readSequence);
+    assertThat(earlier.isActive(), is(true));
+    assertThat(earlier.getChilds(), hasSize(0));
+    assertThat(transactionsHolder.findTransaction(2, readSequence).isPresent(), is(false));
+    assertThat(transactionsHolder.getTransaction(DEFAULT_ID).get().getChilds(), hasSize(1));
+  }
+
+  @Test
+  public void ingestPipelineStoresConcurrentAddsAndReportsFailures() throws Exception {
+    try (TransactionIngestPipeline pipeline = new TransactionIngestPipeline(transactionsHolder, 64)) {
+      pipeline.addTransaction(DEFAULT_ID, createTransaction(DEFAULT_AMOUNT, DEFAULT_TYPE));
+      ExecutorService executor = Executors.newFixedThreadPool(4);
+      List<Future<?>> futures = new ArrayList<>();
+      for (long id = 2; id <= 1_001; id++) {
+        long child = id;
+        futures.add(executor.submit(
+            () -> pipeline.addTransaction(child, createTransaction(new BigDecimal(1), DEFAULT_TYPE, of(DEFAULT_ID)))));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+      executor.shutdown();
+
+      assertThat(transactionsHolder.getSum(DEFAULT_ID), is(DEFAULT_AMOUNT.add(new BigDecimal(1_000))));
+      assertThat(transactionsHolder.getIdsByType(DEFAULT_TYPE), hasSize(1_001));
+    }
+  }
+
+  @Test(expected = AlreadyCreatedTransactionException.class)
+  public void ingestPipelineRethrowsTheFailureOfACommand() {
+    try (TransactionIngestPipeline pipeline = new TransactionIngestPipeline(transactionsHolder, 64)) {
+      pipeline.addTransaction(DEFAULT_ID, createTransaction(DEFAULT_AMOUNT, DEFAULT_TYPE));
+      pipeline.addTransaction(DEFAULT_ID, createTransaction(DEFAULT_AMOUNT.add(ONE), DEFAULT_TYPE));
+    }
+  }
+
+  @Test
+  public void metricsRecordARetriedAddAsAReplayOnly() {
+    List<String> recorded = new ArrayList<>();
+    transactionsHolder.useMetrics(new HolderMetrics() {
+      @Override
+      public void recordOperation(Operation operation, long start) {
+        recorded.add(operation.name());
+      }
+
+      @Override
+      public void recordFailure(RuntimeException failure) {
+        recorded.add(failure.getClass().getSimpleName());
+      }
+    });
+    try {
+      transactionsHolder.addTransaction(DEFAULT_ID, createTransaction(DEFAULT_AMOUNT, DEFAULT_TYPE));
+      transactionsHolder.addTransaction(DEFAULT_ID, createTransaction(DEFAULT_AMOUNT, DEFAULT_TYPE));
+      try {
+        transactionsHolder.addTransaction(DEFAULT_ID, createTransaction(DEFAULT_AMOUNT.add(ONE), DEFAULT_TYPE));
+      } catch (AlreadyCreatedTransactionException expected) {
+      }
+    } finally {
+      transactionsHolder.useMetrics(HolderMetrics.NOOP);
+    }
+
+    assertThat(recorded, is(List.of("ADD", "REPLAY", "AlreadyCreatedTransactionException", "REPLAY")));
+  }
+
+  @Test
+  public void addIsReadableWhileAWriteOfAnotherShardIsHeldUp() throws Exception {
+    long id = idOfAnotherShard(DEFAULT_ID);
+    whileAddIsHeldUp(DEFAULT_ID, () -> {
+      transactionsHolder.addTransaction(id, createTransaction(DEFAULT_AMOUNT, DEFAULT_TYPE));
+      assertThat(transactionsHolder.getTransaction(id).isPresent(), is(true));
+      assertThat(transactionsHolder.getSum(id), is(DEFAULT_AMOUNT));
+      assertThat(transactionsHolder.getTransaction(DEFAULT_ID).isPresent(), is(false));
+      // listings are cut before the held add, so a cursor taken from them never passes it
+      assertThat(transactionsHolder.getIdsByType(DEFAULT_TYPE), is(List.of()));
+    });
+    assertThat(transactionsHolder.getIdsByType(DEFAULT_TYPE), is(List.of(DEFAULT_ID, id)));
+  }
+
+  @Test
+  public void pagingByTypeResumesBeforeAnAddHeldUpInAnotherShard() throws Exception {
+    long id = idOfAnotherShard(DEFAULT_ID);
+    long first = id + 1;
+    transactionsHolder.addTransaction(first, createTransaction(DEFAULT_AMOUNT, DEFAULT_TYPE));
+    List<Long> page = new ArrayList<>();
+    whileAddIsHeldUp(DEFAULT_ID, () -> {
+      transactionsHolder.addTransaction(id, createTransaction(DEFAULT_AMOUNT, DEFAULT_TYPE));
+      page.addAll(transactionsHolder.getIdsByType(DEFAULT_TYPE));
+    });
+
+    assertThat(page, is(List.of(first)));
+    assertThat(transactionsHolder.getIdsByType(DEFAULT_TYPE, page.get(page.size() - 1)), is(List.of(DEFAULT_ID, id)));
+  }
+
+  // runs the check while the add of the id is held inside its shard lock, then lets the add finish
+  private void whileAddIsHeldUp(long heldId, Runnable check) throws Exception {
+    CountDownLatch heldUp = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    transactionsHolder.invalidateOnMutations(new MutationListener() {
+      @Override
+      public void onAdd(Transaction transaction) {
+        if (transaction.getId() == heldId) {
+          heldUp.countDown();
+          awaitUninterruptibly(release);
+        }
+      }
+    });
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      Future<?> held = executor.submit(
+          () -> transactionsHolder.addTransaction(heldId, createTransaction(DEFAULT_AMOUNT, DEFAULT_TYPE)));
+      heldUp.await();
+      check.run();
+      release.countDown();
+      held.get();
+    } finally {
+      release.countDown();
+      executor.shutdown();
+      transactionsHolder.invalidateOnMutations(MutationListener.NONE);
+    }
+  }
+
+  private long idOfAnotherShard(long id) {
+    long other = id + 1;
+    while (transactionsHolder.shardIndex(other) == transactionsHolder.shardIndex(id)) {
+      other++;
+    }
+    return other;
+  }
+
+  private static void awaitUninterruptibly(CountDownLatch latch) {
+    try {
+      latch.await();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
   private int createMultipleTransactionChilds(int initialId, int amount) {
     int currentId = initialId;
     int currentValue = 1;
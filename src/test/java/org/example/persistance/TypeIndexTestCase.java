@@ -0,0 +1,47 @@
+package org.example.persistance;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.example.model.Transaction;
+import org.junit.Test;
+
+public class TypeIndexTestCase {
+
+  private final TypeIndex index = new TypeIndex(4, false);
+
+  @Test
+  public void mergesTheShardsInTheOrderTheIdsWereStored() {
+    for (long id = 1; id <= 100; id++) {
+      index.append((int) (id * 7 % 4), transaction(id, id * 10));
+    }
+
+    List<Long> expected = new ArrayList<>();
+    for (long id = 1; id <= 100; id++) {
+      expected.add(id);
+    }
+    assertThat(index.size(), is(100L));
+    assertThat(new ArrayList<>(index.between(0, Long.MAX_VALUE)), is(expected));
+    assertThat(index.between(0, Long.MAX_VALUE).get(50), is(51L));
+  }
+
+  @Test
+  public void startsAfterTheCursorAndStopsAtTheVisibleSequence() {
+    for (long id = 1; id <= 10; id++) {
+      index.append((int) (id % 3), transaction(id, id));
+    }
+
+    assertThat(index.between(4, 8), is(List.of(5L, 6L, 7L, 8L)));
+    assertThat(index.between(8, 8), is(List.of()));
+  }
+
+  private Transaction transaction(long id, long sequence) {
+    Transaction transaction = new Transaction(id, BigDecimal.ONE, "cars");
+    transaction.setCreatedSequence(sequence);
+    return transaction;
+  }
+}
@@ -0,0 +1,61 @@
+package org.example.persistance.storage;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.hasSize;
+
+import java.util.List;
+
+import org.junit.Test;
+
+public class LongAppendIndexTestCase {
+
+  @Test
+  public void appendAcrossChunksOnHeap() {
+    assertAppendAcrossChunks(new LongAppendIndex(false));
+  }
+
+  @Test
+  public void appendAcrossChunksOffHeap() {
+    assertAppendAcrossChunks(new LongAppendIndex(true));
+  }
+
+  @Test
+  public void listIsASnapshotOfTheCurrentSize() {
+    LongAppendIndex index = new LongAppendIndex();
+    index.append(1);
+    index.append(2);
+    List<Long> snapshot = index.asList(0);
+    index.append(3);
+    assertThat(snapshot, hasSize(2));
+    assertThat(index.asList(0), is(List.of(1L, 2L, 3L)));
+  }
+
+  @Test
+  public void listFromPositionSeesOnlyTheRangeAtCallTime() {
+    LongAppendIndex index = new LongAppendIndex();
+    for (long value = 1; value <= 40; value++) {
+      index.append(value);
+    }
+    List<Long> range = index.asList(30);
+    index.append(41);
+    assertThat(range, hasSize(10));
+    assertThat(range.get(0), is(31L));
+    assertThat(range.get(9), is(40L));
+    assertThat(index.asList(41), hasSize(0));
+  }
+
+  private void assertAppendAcrossChunks(LongAppendIndex index) {
+    int values = 300_000;
+    for (int i = 0; i < values; i++) {
+      assertThat(index.append(i * 3L), is(i));
+    }
+    assertThat(index.size(), is(values));
+    for (int i = 0; i < values; i++) {
+      assertThat(index.get(i), is(i * 3L));
+    }
+    List<Long> range = index.asList(5);
+    assertThat(range, hasSize(values - 5));
+    assertThat(range.get(range.size() - 1), is((values - 1) * 3L));
+  }
+}
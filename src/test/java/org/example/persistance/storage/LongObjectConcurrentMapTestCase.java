@@ -0,0 +1,57 @@
+package org.example.persistance.storage;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+public class LongObjectConcurrentMapTestCase {
+
+  private final LongObjectConcurrentMap<String> map = new LongObjectConcurrentMap<>(4);
+
+  @Test
+  public void putAndGetManyKeys() {
+    for (long key = 1; key <= 100_000; key++) {
+      assertThat(map.putIfAbsent(key, String.valueOf(key)), is(nullValue()));
+    }
+    assertThat(map.size(), is(100_000L));
+    for (long key = 1; key <= 100_000; key++) {
+      assertThat(map.get(key), is(String.valueOf(key)));
+    }
+    assertThat(map.get(100_001), is(nullValue()));
+  }
+
+  @Test
+  public void putIfAbsentKeepsTheFirstValue() {
+    map.putIfAbsent(1, "first");
+    assertThat(map.putIfAbsent(1, "second"), is("first"));
+    assertThat(map.get(1), is("first"));
+  }
+
+  @Test
+  public void removeKeepsCollidingKeysReachable() {
+    for (long key = 1; key <= 1_000; key++) {
+      map.put(key, String.valueOf(key));
+    }
+    for (long key = 1; key <= 1_000; key += 2) {
+      assertThat(map.remove(key), is(String.valueOf(key)));
+    }
+    for (long key = 1; key <= 1_000; key++) {
+      assertThat(map.get(key), is(key % 2 == 0 ? String.valueOf(key) : null));
+    }
+    assertThat(map.size(), is(500L));
+  }
+
+  @Test
+  public void forEachValueVisitsEveryEntry() {
+    for (long key = 1; key <= 1_000; key++) {
+      map.put(key, String.valueOf(key));
+    }
+    AtomicLong sum = new AtomicLong();
+    map.forEachValue(value -> sum.addAndGet(Long.parseLong(value)));
+    assertThat(sum.get(), is(500_500L));
+  }
+}
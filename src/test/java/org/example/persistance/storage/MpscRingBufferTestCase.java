@@ -0,0 +1,64 @@
+package org.example.persistance.storage;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+public class MpscRingBufferTestCase {
+
+  @Test
+  public void rejectsOffersOnceFullAndAcceptsThemAfterADrain() {
+    MpscRingBuffer<Integer> ring = new MpscRingBuffer<>(4);
+    for (int i = 0; i < ring.capacity(); i++) {
+      assertThat(ring.offer(i), is(true));
+    }
+    assertThat(ring.offer(4), is(false));
+
+    List<Integer> drained = new ArrayList<>();
+    assertThat(ring.drain(drained::add, 2), is(2));
+    assertThat(ring.offer(4), is(true));
+    assertThat(ring.drain(drained::add, Integer.MAX_VALUE), is(3));
+    assertThat(drained, is(List.of(0, 1, 2, 3, 4)));
+    assertThat(ring.isEmpty(), is(true));
+  }
+
+  @Test
+  public void everyProducerIsDrainedOnceAndInItsOwnOrder() throws Exception {
+    int producers = 4;
+    int perProducer = 100_000;
+    MpscRingBuffer<long[]> ring = new MpscRingBuffer<>(1024);
+    ExecutorService executor = Executors.newFixedThreadPool(producers);
+    List<Future<?>> futures = new ArrayList<>();
+    for (int producer = 0; producer < producers; producer++) {
+      long id = producer;
+      futures.add(executor.submit(() -> {
+        for (long value = 0; value < perProducer; value++) {
+          while (!ring.offer(new long[]{id, value})) {
+            Thread.onSpinWait();
+          }
+        }
+      }));
+    }
+
+    long[] nextValue = new long[producers];
+    int received = 0;
+    while (received < producers * perProducer) {
+      received += ring.drain(element -> {
+        assertThat(element[1], is(nextValue[(int) element[0]]));
+        nextValue[(int) element[0]]++;
+      }, 256);
+    }
+    for (Future<?> future : futures) {
+      future.get();
+    }
+    executor.shutdown();
+    assertThat(ring.isEmpty(), is(true));
+  }
+}
@@ -0,0 +1,78 @@
+package org.example.replication;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Optional;
+
+import org.example.Main;
+import org.example.persistance.TransactionsHolder;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+
+// a leader on a random port, every endpoint answers with the offset of what it stored
+public class ReplicationOffsetFilterTestCase {
+
+  private final HttpClient httpClient = HttpClient.newHttpClient();
+  private ConfigurableApplicationContext context;
+  private ReplicationLeader leader;
+  private String baseUrl;
+
+  @Before
+  public void before() {
+    TransactionsHolder.get().clearTransactionMap();
+    context = SpringApplication.run(Main.class, "--server.port=0", "--transactions.replication.role=leader",
+                                    "--transactions.replication.port=0", "--logging.level.root=WARN");
+    leader = context.getBean(ReplicationLeader.class);
+    baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port") + "/transactions";
+  }
+
+  @After
+  public void after() {
+    context.close();
+    TransactionsHolder.get().clearTransactionMap();
+  }
+
+  @Test
+  public void batchAnswersWithTheOffsetOfItsAdds() throws Exception {
+    long before = leader.endOffset();
+    String body = "{\"id\":1,\"amount\":10,\"type\":\"cars\"}\n"
+        + "{\"id\":2,\"amount\":5,\"type\":\"cars\",\"parent_id\":1}\n";
+    HttpResponse<String> response = send(HttpRequest.newBuilder(URI.create(baseUrl + "/batch"))
+                                             .header("Content-Type", "application/x-ndjson")
+                                             .POST(HttpRequest.BodyPublishers.ofString(body)));
+
+    assertThat(response.statusCode(), is(200));
+    assertThat(offset(response), is(Optional.of(before + 2)));
+  }
+
+  @Test
+  public void streamedReadsAndWritesAnswerWithTheOffset() throws Exception {
+    long stored = leader.endOffset() + 1;
+    HttpResponse<String> created = send(HttpRequest.newBuilder(URI.create(baseUrl + "/1"))
+                                            .header("Content-Type", "application/json")
+                                            .PUT(HttpRequest.BodyPublishers.ofString(
+                                                "{\"amount\":10,\"type\":\"cars\"}")));
+    assertThat(offset(created), is(Optional.of(stored)));
+
+    assertThat(offset(send(HttpRequest.newBuilder(URI.create(baseUrl + "/1")).GET())), is(Optional.of(stored)));
+    assertThat(offset(send(HttpRequest.newBuilder(URI.create(baseUrl + "/types/cars"))
+                               .header("Accept", "application/x-ndjson").GET())), is(Optional.of(stored)));
+    assertThat(offset(send(HttpRequest.newBuilder(URI.create(baseUrl + "/404")).GET())), is(Optional.of(stored)));
+  }
+
+  private HttpResponse<String> send(HttpRequest.Builder request) throws Exception {
+    return httpClient.send(request.build(), HttpResponse.BodyHandlers.ofString());
+  }
+
+  private static Optional<Long> offset(HttpResponse<String> response) {
+    return response.headers().firstValue(ReplicationProtocol.OFFSET_HEADER).map(Long::parseLong);
+  }
+}
@@ -0,0 +1,82 @@
+package org.example.serializer;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+
+import org.example.exceptions.InvalidBinaryFormatException;
+import org.example.model.Transaction;
+import org.junit.Test;
+
+public class TransactionBinaryFormatTestCase {
+
+  @Test
+  public void readsBackTheBatchRequestsItWrites() throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    BinaryOutput output = new BinaryOutput(bytes);
+    TransactionBinaryFormat.writeBatchRequest(new TransactionBatchRequest(7, new BigDecimal("1.5"), "cars", Optional.of(3L)),
+                                              output);
+    TransactionBinaryFormat.writeBatchRequest(new TransactionBatchRequest(8, new BigDecimal(2), "cars", Optional.empty()),
+                                              output);
+    output.flush();
+
+    BinaryInput input = new BinaryInput(new ByteArrayInputStream(bytes.toByteArray()));
+    TransactionBatchRequest first = TransactionBinaryFormat.readBatchRequest(input);
+    assertThat(first.getId(), is(7L));
+    assertThat(first.getAmount(), is(new BigDecimal("1.5")));
+    assertThat(first.getType(), is("cars"));
+    assertThat(first.getParentId(), is(Optional.of(3L)));
+    TransactionBatchRequest second = TransactionBinaryFormat.readBatchRequest(input);
+    assertThat(second.getAmount(), is(new BigDecimal(2)));
+    assertThat(second.getParentId(), is(Optional.empty()));
+    assertThat(input.atEnd(), is(true));
+  }
+
+  @Test(expected = InvalidBinaryFormatException.class)
+  public void rejectsABodyEndingInTheMiddleOfARecord() throws IOException {
+    TransactionBinaryFormat.readBatchRequest(new BinaryInput(new ByteArrayInputStream(new byte[12])));
+  }
+
+  @Test
+  public void writesTheTreeInPreOrderWithChildCounts() throws IOException {
+    Transaction root = new Transaction(1, new BigDecimal(10), "cars");
+    Transaction child = addChild(root, new Transaction(2, new BigDecimal("1.5"), "cars", 1));
+    addChild(child, new Transaction(3, new BigDecimal(2), "cars", 2));
+    addChild(root, new Transaction(4, new BigDecimal(3), "cars", 1));
+    child.rollback(1);
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    BinaryOutput output = new BinaryOutput(bytes);
+    TransactionBinaryFormat.writeTree(root, TransactionJsonWriter.UNLIMITED_DEPTH, Long.MAX_VALUE, output);
+    output.flush();
+
+    BinaryInput input = new BinaryInput(new ByteArrayInputStream(bytes.toByteArray()));
+    assertThat(readNode(input), is(List.of(1L, 0L, 1000L, TransactionBinaryFormat.ACTIVE, 2)));
+    assertThat(readNode(input), is(List.of(2L, 1L, 150L, 0, 1)));
+    assertThat(readNode(input), is(List.of(3L, 2L, 200L, 0, 0)));
+    assertThat(readNode(input), is(List.of(4L, 1L, 300L, TransactionBinaryFormat.ACTIVE, 0)));
+    assertThat(input.atEnd(), is(true));
+  }
+
+  private List<Object> readNode(BinaryInput input) throws IOException {
+    long id = input.readLong();
+    long parentId = input.readLong();
+    long cents = input.readLong();
+    input.readByte();
+    assertThat(input.readString(), is("cars"));
+    int flags = input.readByte();
+    return List.of(id, parentId, cents, flags, input.readInt());
+  }
+
+  private Transaction addChild(Transaction parent, Transaction child) {
+    child.setParent(parent);
+    parent.addChild(child);
+    return child;
+  }
+}
@@ -0,0 +1,77 @@
+package org.example.serializer;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jdk8.Jdk8Module;
+import org.example.model.Transaction;
+import org.junit.Test;
+
+public class TransactionJsonWriterTestCase {
+
+  private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new Jdk8Module());
+
+  @Test
+  public void writesTheSameJsonAsTheResponseObject() throws IOException {
+    Transaction root = createTree();
+    root.getChild(0).rollback(1);
+
+    assertThat(write(root, TransactionJsonWriter.UNLIMITED_DEPTH),
+               is(objectMapper.writeValueAsString(new TransactionSerializerResponse(root))));
+  }
+
+  @Test
+  public void stopsAtTheRequestedDepth() throws IOException {
+    Transaction root = createTree();
+
+    assertThat(write(root, 1), is("{\"amount\":10,\"type\":\"cars\",\"id\":1,\"childs\":["
+                                  + "{\"amount\":1.5,\"type\":\"cars\",\"id\":2,\"childs\":[],\"child_count\":1,"
+                                  + "\"active\":true,\"parent_id\":1},"
+                                  + "{\"amount\":3,\"type\":\"cars\",\"id\":4,\"childs\":[],\"active\":true,\"parent_id\":1}],"
+                                  + "\"active\":true,\"parent_id\":null}"));
+  }
+
+  @Test
+  public void resumesAcrossChunks() throws IOException {
+    Transaction root = createTree();
+    TransactionJsonWriter writer = new TransactionJsonWriter(root, TransactionJsonWriter.UNLIMITED_DEPTH);
+    StringWriter json = new StringWriter();
+    int chunks = 0;
+    try (JsonGenerator generator = objectMapper.getFactory().createGenerator(json)) {
+      while (writer.write(generator, 1)) {
+        chunks++;
+      }
+    }
+
+    assertThat(chunks > 1, is(true));
+    assertThat(json.toString(), is(write(root, TransactionJsonWriter.UNLIMITED_DEPTH)));
+  }
+
+  private Transaction createTree() {
+    Transaction root = new Transaction(1, new BigDecimal(10), "cars");
+    Transaction child = addChild(root, new Transaction(2, new BigDecimal("1.5"), "cars", 1));
+    addChild(child, new Transaction(3, new BigDecimal(2), "cars", 2));
+    addChild(root, new Transaction(4, new BigDecimal(3), "cars", 1));
+    return root;
+  }
+
+  private Transaction addChild(Transaction parent, Transaction child) {
+    child.setParent(parent);
+    parent.addChild(child);
+    return child;
+  }
+
+  private String write(Transaction root, int maxDepth) throws IOException {
+    StringWriter json = new StringWriter();
+    try (JsonGenerator generator = objectMapper.getFactory().createGenerator(json)) {
+      TransactionJsonWriter.write(root, maxDepth, generator);
+    }
+    return json.toString();
+  }
+}